@@ -0,0 +1,95 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.accounts.CurrentAccount;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 64 threads hammering a single CurrentAccount. The "monitor" implementation is the
+ * synchronized balance logic Account used before it switched to CAS loops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(64)
+public class AccountContentionBenchmark {
+
+    interface Target {
+        void deposit(Money amount);
+        void withdraw(Money amount) throws InsufficientBalanceException;
+        long balance();
+    }
+
+    static final class MonitorAccount implements Target {
+        private long balance;
+
+        MonitorAccount(long balance) { this.balance = balance; }
+
+        public synchronized void deposit(Money amount) {
+            balance = Math.addExact(balance, amount.toPaise());
+        }
+
+        public synchronized void withdraw(Money amount) throws InsufficientBalanceException {
+            if (balance < amount.toPaise()) throw new InsufficientBalanceException("Insufficient balance");
+            balance -= amount.toPaise();
+        }
+
+        public synchronized long balance() { return balance; }
+    }
+
+    static final class LockFreeAccount implements Target {
+        private final Account account;
+
+        LockFreeAccount(long balance) { this.account = new CurrentAccount("ACC0001", "CUST0001", Money.ofPaise(balance)); }
+
+        public void deposit(Money amount) { account.deposit(amount); }
+        public void withdraw(Money amount) throws InsufficientBalanceException { account.withdraw(amount); }
+        public long balance() { return account.getBalancePaise(); }
+    }
+
+    @Param({"lockFree", "monitor"})
+    public String impl;
+
+    private final Money amount = Money.ofRupees(10);
+    private Target target;
+
+    @Setup
+    public void setup() {
+        long initial = Money.ofRupees(1_000_000_000L).toPaise();
+        target = "monitor".equals(impl) ? new MonitorAccount(initial) : new LockFreeAccount(initial);
+    }
+
+    @Benchmark
+    public void deposit() {
+        target.deposit(amount);
+    }
+
+    @Benchmark
+    public void depositThenWithdraw() throws InsufficientBalanceException {
+        target.deposit(amount);
+        target.withdraw(amount);
+    }
+
+    @Benchmark
+    public long readBalance() {
+        return target.balance();
+    }
+}
@@ -0,0 +1,77 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.service.AccountSummary;
+import com.hdfc.minibank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dashboard-style polling of account details over 1,000 accounts: the cached summary against
+ * working the view out from the Account on every call, as the console used to.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class AccountSummaryBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final DateTimeFormatter DISPLAY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private BankService bank;
+    private Account[] accounts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bank = new BankService();
+        bank.registerCustomer(new Customer("CUST0001", "Bench", "bench@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+        accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = bank.openAccount("CUST0001", AccountType.SAVINGS, Money.ofRupees(10_000 + i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bank.close();
+    }
+
+    @Benchmark
+    public AccountSummary cached() {
+        return bank.getAccountSummary(accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)]);
+    }
+
+    @Benchmark
+    public void uncached(Blackhole bh) {
+        Account acc = accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        bh.consume(acc.getCreatedAt().format(DISPLAY_TIME));
+        bh.consume(acc.getBalance());
+        bh.consume(acc.getMinimumBalance());
+        bh.consume(acc.getInterestRate());
+        bh.consume(acc.calculateInterest());
+    }
+}
@@ -0,0 +1,62 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * autoCreateAccountIfNeeded as the number of existing accounts grows, both for a customer
+ * that already has the account (lookup) and for a brand new customer (create).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AutoCreateAccountBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int existingAccounts;
+
+    private final Money initial = Money.ofRupees(5000);
+    private BankService bank;
+    private String[] customerIds;
+
+    @Setup
+    public void setup() {
+        bank = new BankService();
+        customerIds = new String[existingAccounts];
+        for (int i = 0; i < existingAccounts; i++) {
+            customerIds[i] = bank.autoCreateCustomerIfNeeded();
+            bank.autoCreateAccountIfNeeded(customerIds[i], AccountType.SAVINGS, initial);
+        }
+    }
+
+    @Benchmark
+    public Account existingAccount() {
+        String custId = customerIds[ThreadLocalRandom.current().nextInt(existingAccounts)];
+        return bank.autoCreateAccountIfNeeded(custId, AccountType.SAVINGS, initial);
+    }
+
+    // includes creating the customer, and grows the bank by one account per call
+    @Benchmark
+    public Account newAccount() {
+        return bank.autoCreateAccountIfNeeded(bank.autoCreateCustomerIfNeeded(), AccountType.SAVINGS, initial);
+    }
+}
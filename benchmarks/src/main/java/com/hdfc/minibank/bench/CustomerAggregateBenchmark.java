@@ -0,0 +1,86 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.service.AggregateView;
+import com.hdfc.minibank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A customer's total balance and today's deposits over 10,000 customers with two accounts and
+ * a few transactions each: the maintained aggregate against scanning the accounts and their
+ * history, as callers had to before.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CustomerAggregateBenchmark {
+
+    private static final int CUSTOMERS = 10_000;
+
+    private BankService bank;
+    private String[] customerIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        bank = new BankService();
+        customerIds = new String[CUSTOMERS];
+        for (int i = 0; i < CUSTOMERS; i++) {
+            customerIds[i] = bank.autoCreateCustomerIfNeeded();
+            Account savings = bank.autoCreateAccountIfNeeded(customerIds[i], AccountType.SAVINGS, Money.ofRupees(10_000));
+            Account current = bank.autoCreateAccountIfNeeded(customerIds[i], AccountType.CURRENT, Money.ofRupees(20_000));
+            bank.deposit(savings, Money.ofRupees(500));
+            bank.deposit(current, Money.ofRupees(250));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        bank.close();
+    }
+
+    @Benchmark
+    public long aggregate() {
+        AggregateView view = bank.getCustomerAggregate(customerIds[ThreadLocalRandom.current().nextInt(CUSTOMERS)]);
+        return view.getTotalBalancePaise() + view.getDeposited().toPaise();
+    }
+
+    @Benchmark
+    public long scan() {
+        String id = customerIds[ThreadLocalRandom.current().nextInt(CUSTOMERS)];
+        LocalDate today = LocalDate.now();
+        long balance = 0;
+        long deposited = 0;
+        for (Account acc : bank.getAccounts().findAll()) {
+            if (!acc.getCustomerId().equals(id)) continue;
+            balance += acc.getBalancePaise();
+            for (Transaction t : bank.getTransactionHistory(acc.getAccountNo())) {
+                if (t.getType() == TransactionType.DEPOSIT && t.getTimestamp().toLocalDate().equals(today)) {
+                    deposited += t.getAmount().toPaise();
+                }
+            }
+        }
+        return balance + deposited;
+    }
+}
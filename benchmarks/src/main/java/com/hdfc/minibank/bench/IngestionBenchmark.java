@@ -0,0 +1,78 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Salary-day deposits from many threads into a journaled bank: BankService.deposit, which
+ * waits for the journal per call, against depositAsync, which goes through the micro-batching
+ * ingestion queue. Each caller waits for its own result in both modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(32)
+public class IngestionBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+
+    @Param({"sync", "ingest"})
+    public String mode;
+
+    private final Money amount = Money.ofRupees(1);
+    private Path dir;
+    private BankService bank;
+    private Account[] accounts;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("ingestion-bench");
+        bank = new BankService(dir);
+        accounts = new Account[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accounts[i] = bank.autoCreateAccountIfNeeded(bank.autoCreateCustomerIfNeeded(), AccountType.CURRENT, Money.ofRupees(1_000));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        bank.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public void deposit() {
+        Account acc = accounts[ThreadLocalRandom.current().nextInt(ACCOUNTS)];
+        if ("ingest".equals(mode)) bank.depositAsync(acc, amount).join();
+        else bank.deposit(acc, amount);
+    }
+}
@@ -0,0 +1,93 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.service.BankService;
+import com.hdfc.minibank.service.StatementFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Statement of one account with historySize transactions: the streaming CSV and binary export
+ * against building the whole list and formatting each line with a fresh DateTimeFormatter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StatementExportBenchmark {
+
+    @Param({"10000", "1000000"})
+    public int historySize;
+
+    private BankService bank;
+    private String accountNo;
+    private final DiscardChannel sink = new DiscardChannel();
+
+    @Setup
+    public void setup() {
+        bank = new BankService();
+        Account acc = bank.autoCreateAccountIfNeeded(bank.autoCreateCustomerIfNeeded(), AccountType.CURRENT, Money.ofRupees(100));
+        accountNo = acc.getAccountNo();
+        Money amount = Money.ofRupees(1);
+        for (int i = 1; i < historySize; i++) {
+            bank.deposit(acc, amount);
+        }
+    }
+
+    @Benchmark
+    public long exportCsv() throws IOException {
+        return bank.exportStatement(accountNo, null, null, StatementFormat.CSV, sink);
+    }
+
+    @Benchmark
+    public long exportBinary() throws IOException {
+        return bank.exportStatement(accountNo, null, null, StatementFormat.BINARY, sink);
+    }
+
+    // the way the console printed history before
+    @Benchmark
+    public void formattedList(Blackhole bh) {
+        List<String> lines = bank.getTransactionHistory(accountNo).stream()
+                .map(t -> t.getId() + "," + t.getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"))
+                        + "," + t.getType() + "," + t.getAmount() + "," + (t.getNotes() == null ? "" : t.getNotes()))
+                .collect(Collectors.toList());
+        for (String line : lines) {
+            bh.consume(line.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static final class DiscardChannel implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer src) {
+            int n = src.remaining();
+            src.position(src.limit());
+            return n;
+        }
+
+        @Override public boolean isOpen() { return true; }
+        @Override public void close() {}
+    }
+}
@@ -0,0 +1,72 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.repository.HistoryPage;
+import com.hdfc.minibank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statement lookup for one account out of a bank holding transactionCount transactions.
+ * The 50M case needs a large heap; pass e.g. -jvmArgsAppend -Xmx24g to JMH.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx16g")
+public class TransactionHistoryBenchmark {
+
+    private static final int ACCOUNT_COUNT = 10_000;
+
+    @Param({"1000000", "10000000", "50000000"})
+    public int transactionCount;
+
+    private BankService bank;
+    private String[] accountNos;
+    private LocalDateTime rangeFrom;
+
+    @Setup
+    public void setup() {
+        bank = new BankService();
+        accountNos = new String[ACCOUNT_COUNT];
+        Account[] accounts = new Account[ACCOUNT_COUNT];
+        for (int i = 0; i < ACCOUNT_COUNT; i++) {
+            accounts[i] = bank.autoCreateAccountIfNeeded(bank.autoCreateCustomerIfNeeded(), AccountType.CURRENT, Money.ofRupees(100));
+            accountNos[i] = accounts[i].getAccountNo();
+        }
+        Money amount = Money.ofRupees(1);
+        for (int i = ACCOUNT_COUNT; i < transactionCount; i++) {
+            bank.deposit(accounts[i % ACCOUNT_COUNT], amount);
+            if (i == transactionCount / 2) rangeFrom = LocalDateTime.now();
+        }
+    }
+
+    @Benchmark
+    public List<Transaction> accountStatement() {
+        return bank.getTransactionHistory(accountNos[ThreadLocalRandom.current().nextInt(ACCOUNT_COUNT)]);
+    }
+
+    @Benchmark
+    public HistoryPage accountStatementPage() {
+        return bank.getStatementPage(accountNos[ThreadLocalRandom.current().nextInt(ACCOUNT_COUNT)], rangeFrom, null, null, 50);
+    }
+}
@@ -0,0 +1,64 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.service.BankService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BankService.transfer between random account pairs. The bank is rebuilt every
+ * iteration so the in-memory transaction log does not grow without bound.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(8)
+public class TransferBenchmark {
+
+    @Param({"100", "10000", "1000000"})
+    public int accountCount;
+
+    private final Money amount = Money.ofRupees(1);
+    private BankService bank;
+    private Account[] accounts;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        bank = new BankService();
+        accounts = new Account[accountCount];
+        Money initial = Money.ofRupees(1_000_000);
+        for (int i = 0; i < accountCount; i++) {
+            accounts[i] = bank.autoCreateAccountIfNeeded(bank.autoCreateCustomerIfNeeded(), AccountType.CURRENT, initial);
+        }
+    }
+
+    @Benchmark
+    public void transferRandomPair() throws InsufficientBalanceException, VelocityLimitExceededException {
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        int from = rnd.nextInt(accountCount);
+        int to = rnd.nextInt(accountCount - 1);
+        if (to >= from) to++;
+        bank.transfer(accounts[from], accounts[to], amount);
+    }
+}
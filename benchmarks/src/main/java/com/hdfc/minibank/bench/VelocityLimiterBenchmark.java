@@ -0,0 +1,66 @@
+package com.hdfc.minibank.bench;
+
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.limits.VelocityLimiter;
+import com.hdfc.minibank.limits.VelocityPolicy;
+import com.hdfc.minibank.limits.VelocityPolicy.Flow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What the velocity check adds to a withdrawal: acquire then release on the standard policy
+ * over 10,000 accounts of 1,000 customers, against the policy with no rules. Releasing keeps
+ * every window below its limits, so each call runs all the checks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class VelocityLimiterBenchmark {
+
+    private static final int ACCOUNTS = 10_000;
+    private static final int ACCOUNTS_PER_CUSTOMER = 10;
+
+    @Param({"off", "standard"})
+    public String policy;
+
+    private VelocityLimiter limiter;
+    private String[] accountNos;
+    private String[] customerIds;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        limiter = new VelocityLimiter("off".equals(policy) ? VelocityPolicy.none() : VelocityPolicy.standard());
+        accountNos = new String[ACCOUNTS];
+        customerIds = new String[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            accountNos[i] = "ACC" + (10_000 + i);
+            customerIds[i] = "CUST" + (1_000 + i / ACCOUNTS_PER_CUSTOMER);
+        }
+    }
+
+    @Benchmark
+    public long checkWithdrawal() throws VelocityLimitExceededException {
+        int i = ThreadLocalRandom.current().nextInt(ACCOUNTS);
+        long at = limiter.acquire(accountNos[i], customerIds[i], Flow.WITHDRAWAL, 100_00, System.currentTimeMillis());
+        limiter.release(accountNos[i], customerIds[i], Flow.WITHDRAWAL, 100_00, at);
+        return at;
+    }
+}
@@ -1 +1,2 @@
-
+@echo off
+call mvn -q -B package && java -jar target\hdfc-mini-bank.jar %*
@@ -1 +1,2 @@
-
+#!/bin/sh
+mvn -q -B package && java -jar target/hdfc-mini-bank.jar "$@"
@@ -1,43 +1,144 @@
 package com.hdfc.minibank;
 
 import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
 import com.hdfc.minibank.domain.Transaction;
 import com.hdfc.minibank.domain.accounts.Account;
-import com.hdfc.minibank.domain.accounts.CurrentAccount;
-import com.hdfc.minibank.domain.accounts.SavingsAccount;
 import com.hdfc.minibank.domain.enums.AccountType;
-import com.hdfc.minibank.domain.enums.TransactionType;
 import com.hdfc.minibank.exceptions.InvalidAccountException;
-import com.hdfc.minibank.exceptions.InsufficientBalanceException;
-
-import java.math.BigDecimal;
+import com.hdfc.minibank.http.BankHttpServer;
+import com.hdfc.minibank.http.TransferStepServer;
+import com.hdfc.minibank.load.LoadGenerator;
+import com.hdfc.minibank.repository.HistoryPage;
+import com.hdfc.minibank.service.AccountSummary;
+import com.hdfc.minibank.service.AggregateView;
+import com.hdfc.minibank.service.BankService;
+import com.hdfc.minibank.service.BatchTransferResult;
+import com.hdfc.minibank.service.BulkOnboardingResult;
+import com.hdfc.minibank.service.InterestAccrualJob;
+import com.hdfc.minibank.service.StatementFormat;
+import com.hdfc.minibank.service.TransferInstruction;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 
 public class Main {
 
-    private final Map<String, Customer> customers = new HashMap<>();
-    private final Map<String, Account> accounts = new HashMap<>();
-    private final List<Transaction> transactions = new ArrayList<>();
+    private static final int STATEMENT_PAGE_SIZE = 20;
+    private static final DateTimeFormatter DISPLAY_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
 
-    private final ExecutorService executorService = Executors.newFixedThreadPool(5);
+    private final BankService bank;
+    private final Path dataDir;
 
-    private int customerCounter = 1000;
-    private int accountCounter = 1000;
+    private static final int WORKER_THREADS = Integer.getInteger("minibank.workers", 5);
 
-    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w._%+-]+@[\\w.-]+\\.[A-Za-z]{2,}$");
-    private static final Pattern PHONE_PATTERN = Pattern.compile("^[6-9]\\d{9}$"); // Indian mobile format
-    private static final Pattern CUSTOMER_ID_PATTERN = Pattern.compile("^CUST\\d{4}$");
+    private final ExecutorService executorService = Executors.newFixedThreadPool(WORKER_THREADS);
 
     private final Scanner scanner = new Scanner(System.in);
 
-    public static void main(String[] args) {
-        new Main().run();
+    public Main(BankService bank, Path dataDir) {
+        this.bank = bank;
+        this.dataDir = dataDir;
+    }
+
+    // Options: --http=PORT starts the HTTP front end, --no-console serves HTTP only, and on a
+    // sharded bank --steps-http=PORT serves the router's transfer steps (see TransferStepServer).
+    // Bad options exit with status 2. --load runs the load generator on a bank of its own
+    // instead, with the options LoadGenerator lists; the exit status is then 1 if an invariant
+    // failed and 2 if the options were bad.
+    public static void main(String[] args) throws Exception {
+        Path dataDir = Paths.get(System.getProperty("minibank.dataDir", "data"));
+        if (args.length > 0 && args[0].equals("--load")) {
+            LoadGenerator.Options options;
+            try {
+                options = LoadGenerator.Options.parse(Arrays.asList(args).subList(1, args.length));
+            } catch (IllegalArgumentException e) {
+                System.out.println(e.getMessage());
+                System.exit(2);
+                return;
+            }
+            BankService bank = options.getJournalDir() != null
+                    ? new BankService(options.getJournalDir(), options.getLimits())
+                    : new BankService(options.getLimits());
+            System.exit(new Main(bank, dataDir).runLoad(options) ? 0 : 1);
+        }
+
+        Integer httpPort = null;
+        Integer stepsPort = null;
+        boolean console = true;
+        try {
+            for (String arg : args) {
+                if (arg.startsWith("--http=")) httpPort = Integer.parseInt(arg.substring("--http=".length()));
+                else if (arg.startsWith("--steps-http=")) stepsPort = Integer.parseInt(arg.substring("--steps-http=".length()));
+                else if (arg.equals("--no-console")) console = false;
+                else throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+        } catch (IllegalArgumentException e) { // NumberFormatException included
+            System.out.println(e instanceof NumberFormatException ? "Invalid port: " + e.getMessage() : e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        BankService bank = new BankService(dataDir);
+        bank.getMetrics().registerMBean();
+        long dumpSeconds = Long.getLong("minibank.metrics.dumpSeconds", 60);
+        if (dumpSeconds > 0) {
+            bank.getMetrics().startPeriodicDump(dataDir.resolve("metrics.log"), dumpSeconds);
+        }
+        if (bank.getRecoveredRecords() > 0) {
+            System.out.println("Recovered " + bank.getCustomers().count() + " customers, " + bank.getAccounts().count() + " accounts and " + bank.getTransactionCount() + " transactions from disk.");
+        }
+
+        TransferStepServer steps = null;
+        if (stepsPort != null) {
+            try {
+                steps = new TransferStepServer(bank, stepsPort, System.getenv(TransferStepServer.SECRET_ENV),
+                        System.getenv(TransferStepServer.RECEIPT_SECRET_ENV));
+            } catch (IllegalStateException e) {
+                System.out.println(e.getMessage());
+                bank.close();
+                System.exit(2);
+                return;
+            }
+        }
+        BankHttpServer http = null;
+        if (httpPort != null) {
+            http = new BankHttpServer(bank, httpPort);
+            http.start();
+            System.out.println("HTTP front end listening on port " + http.getPort());
+        }
+        if (steps != null) {
+            steps.start();
+            System.out.println("Transfer steps listening on port " + steps.getPort());
+        }
+        if (console) {
+            Main app = new Main(bank, dataDir);
+            app.run();
+            // stop taking requests before the bank and its journal are closed
+            if (http != null) http.close();
+            if (steps != null) steps.close();
+            app.shutdown();
+            System.out.println("Thank you for using HDFC Mini Bank!");
+        } else if (http != null) {
+            BankHttpServer server = http;
+            TransferStepServer stepServer = steps;
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.close();
+                if (stepServer != null) stepServer.close();
+                bank.close();
+            }));
+            Thread.currentThread().join();
+        } else {
+            System.out.println("Nothing to run: --no-console needs --http=PORT");
+            if (steps != null) steps.close();
+            bank.close();
+        }
     }
 
     private void run() {
@@ -54,12 +155,12 @@ public class Main {
                 case "3": performTransactions(); break;
                 case "4": viewAccountDetails(); break;
                 case "5": viewTransactionHistory(); break;
-                case "6": running = false; break;
+                case "6": exportStatements(); break;
+                case "7": bulkOnboarding(); break;
+                case "8": running = false; break;
                 default: System.out.println("Invalid option. Please try again.");
             }
         }
-        shutdown();
-        System.out.println("Thank you for using HDFC Mini Bank!");
     }
 
     private void printMenu() {
@@ -69,7 +170,9 @@ public class Main {
         System.out.println("3. Perform Transactions");
         System.out.println("4. View Account Details");
         System.out.println("5. View Transaction History");
-        System.out.println("6. Exit");
+        System.out.println("6. Export Statements");
+        System.out.println("7. Bulk Onboarding (CSV)");
+        System.out.println("8. Exit");
         System.out.print("Choose an option: ");
     }
 
@@ -77,11 +180,11 @@ public class Main {
         try {
             System.out.print("Enter Customer ID (format CUST####): ");
             String id = scanner.nextLine().trim().toUpperCase();
-            if (!CUSTOMER_ID_PATTERN.matcher(id).matches()) {
+            if (!BankService.CUSTOMER_ID_PATTERN.matcher(id).matches()) {
                 System.out.println("Invalid Customer ID format.");
                 return;
             }
-            if (customers.containsKey(id)) {
+            if (bank.getCustomers().exists(id)) {
                 System.out.println("Customer ID already exists.");
                 return;
             }
@@ -91,14 +194,14 @@ public class Main {
 
             System.out.print("Enter Email: ");
             String email = scanner.nextLine().trim();
-            if (!EMAIL_PATTERN.matcher(email).matches()) {
+            if (!BankService.EMAIL_PATTERN.matcher(email).matches()) {
                 System.out.println("Invalid email format.");
                 return;
             }
 
             System.out.print("Enter Phone (10 digits, starts with 6-9): ");
             String phone = scanner.nextLine().trim();
-            if (!PHONE_PATTERN.matcher(phone).matches()) {
+            if (!BankService.PHONE_PATTERN.matcher(phone).matches()) {
                 System.out.println("Invalid phone format.");
                 return;
             }
@@ -107,8 +210,7 @@ public class Main {
             String dobStr = scanner.nextLine().trim();
             LocalDate dob = LocalDate.parse(dobStr);
 
-            Customer c = new Customer(id, name, email, phone, dob);
-            customers.put(id, c);
+            Customer c = bank.registerCustomer(new Customer(id, name, email, phone, dob));
             System.out.println("Customer registered successfully: " + c);
         } catch (Exception e) {
             System.out.println("Error registering customer: " + e.getMessage());
@@ -119,7 +221,7 @@ public class Main {
         try {
             System.out.print("Enter Customer ID: ");
             String custId = scanner.nextLine().trim().toUpperCase();
-            if (!customers.containsKey(custId)) {
+            if (!bank.getCustomers().exists(custId)) {
                 System.out.println("Customer not found.");
                 return;
             }
@@ -129,29 +231,25 @@ public class Main {
             AccountType type = "1".equals(t) ? AccountType.SAVINGS : AccountType.CURRENT;
 
             System.out.print("Enter Initial Deposit Amount: ");
-            BigDecimal initial = new BigDecimal(scanner.nextLine().trim());
-
-            String accountNo = generateAccountNo();
-            Account account = (type == AccountType.SAVINGS)
-                    ? new SavingsAccount(accountNo, custId, initial)
-                    : new CurrentAccount(accountNo, custId, initial);
+            Money initial = Money.parse(scanner.nextLine());
 
-            accounts.put(accountNo, account);
-            transactions.add(new Transaction(UUID.randomUUID().toString(), accountNo, TransactionType.DEPOSIT, initial, LocalDateTime.now(), "Initial deposit"));
-            System.out.println(type + " account created. Account No: " + accountNo);
+            Account account = bank.openAccount(custId, type, initial);
+            System.out.println(type + " account created. Account No: " + account.getAccountNo());
         } catch (Exception e) {
             System.out.println("Error creating account: " + e.getMessage());
         }
     }
 
     private void performTransactions() {
-        System.out.println("\n1. Deposit\n2. Withdraw\n3. Transfer");
+        System.out.println("\n1. Deposit\n2. Withdraw\n3. Transfer\n4. Batch Transfer (CSV file)\n5. Post Daily Interest (end of day)");
         System.out.print("Choose: ");
         String opt = scanner.nextLine().trim();
         switch (opt) {
             case "1": depositFlow(); break;
             case "2": withdrawFlow(); break;
             case "3": transferFlow(); break;
+            case "4": batchTransferFlow(); break;
+            case "5": interestFlow(); break;
             default: System.out.println("Invalid choice.");
         }
     }
@@ -160,9 +258,8 @@ public class Main {
         try {
             Account acc = askAccount("Enter Account No for Deposit: ");
             System.out.print("Amount: ");
-            BigDecimal amt = new BigDecimal(scanner.nextLine().trim());
-            acc.deposit(amt);
-            transactions.add(new Transaction(UUID.randomUUID().toString(), acc.getAccountNo(), TransactionType.DEPOSIT, amt, LocalDateTime.now(), "Deposit"));
+            Money amt = Money.parse(scanner.nextLine());
+            bank.deposit(acc, amt);
             System.out.println("✓ Deposit successful. New Balance: " + acc.getBalance());
         } catch (Exception e) {
             System.out.println("Deposit failed: " + e.getMessage());
@@ -173,9 +270,8 @@ public class Main {
         try {
             Account acc = askAccount("Enter Account No for Withdrawal: ");
             System.out.print("Amount: ");
-            BigDecimal amt = new BigDecimal(scanner.nextLine().trim());
-            acc.withdraw(amt);
-            transactions.add(new Transaction(UUID.randomUUID().toString(), acc.getAccountNo(), TransactionType.WITHDRAWAL, amt, LocalDateTime.now(), "Withdrawal"));
+            Money amt = Money.parse(scanner.nextLine());
+            bank.withdraw(acc, amt);
             System.out.println("✓ Withdrawal successful. New Balance: " + acc.getBalance());
         } catch (Exception e) {
             System.out.println("Withdrawal failed: " + e.getMessage());
@@ -187,39 +283,73 @@ public class Main {
             Account from = askAccount("From Account No: ");
             Account to = askAccount("To Account No: ");
             System.out.print("Amount: ");
-            BigDecimal amt = new BigDecimal(scanner.nextLine().trim());
-            transfer(from, to, amt);
+            Money amt = Money.parse(scanner.nextLine());
+            bank.transfer(from, to, amt);
             System.out.println("✓ Transfer successful.");
         } catch (Exception e) {
             System.out.println("Transfer failed: " + e.getMessage());
         }
     }
 
-    private void transfer(Account from, Account to, BigDecimal amount) throws Exception {
-        Account first = from.getAccountNo().compareTo(to.getAccountNo()) < 0 ? from : to;
-        Account second = (first == from) ? to : from;
-        synchronized (first) {
-            synchronized (second) {
-                from.withdraw(amount);
-                to.deposit(amount);
-                LocalDateTime now = LocalDateTime.now();
-                transactions.add(new Transaction(UUID.randomUUID().toString(), from.getAccountNo(), TransactionType.TRANSFER_OUT, amount, now, "Transfer to " + to.getAccountNo()));
-                transactions.add(new Transaction(UUID.randomUUID().toString(), to.getAccountNo(), TransactionType.TRANSFER_IN, amount, now, "Transfer from " + from.getAccountNo()));
+    // Each non-blank line: fromAccountNo,toAccountNo,amount (lines starting with # are skipped)
+    private void batchTransferFlow() {
+        try {
+            System.out.print("Path to transfer file: ");
+            Path file = Paths.get(scanner.nextLine().trim());
+            List<TransferInstruction> instructions = new ArrayList<>();
+            int lineNo = 0;
+            for (String line : Files.readAllLines(file)) {
+                lineNo++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                String[] parts = line.split(",");
+                if (parts.length != 3) {
+                    System.out.println("Skipping line " + lineNo + ": expected from,to,amount");
+                    continue;
+                }
+                instructions.add(new TransferInstruction(parts[0].trim().toUpperCase(), parts[1].trim().toUpperCase(), Money.parse(parts[2])));
+            }
+            BatchTransferResult result = bank.transferBatch(instructions);
+            System.out.println("✓ " + result.getSucceededCount() + " transfers applied, " + result.getFailedCount() + " failed.");
+            for (BatchTransferResult.Outcome o : result.getFailed()) {
+                System.out.println("  #" + (o.getIndex() + 1) + " " + o.getInstruction() + " - " + o.getFailure().getMessage());
             }
+        } catch (Exception e) {
+            System.out.println("Batch transfer failed: " + e.getMessage());
+        }
+    }
+
+    private void interestFlow() {
+        try {
+            System.out.print("Business date (yyyy-MM-dd, Enter for today): ");
+            String dateStr = scanner.nextLine().trim();
+            LocalDate date = dateStr.isEmpty() ? LocalDate.now() : LocalDate.parse(dateStr);
+            InterestAccrualJob.Result r = new InterestAccrualJob(bank, dataDir.resolve("interest")).run(date);
+            if (r.isAlreadyComplete()) {
+                System.out.println("Interest for " + date + " has already been posted.");
+                return;
+            }
+            System.out.println("✓ Interest posted to " + r.getAccountsCredited() + " accounts, total " + r.getTotalInterest()
+                    + (r.getPartitionsSkipped() > 0 ? " (resumed, " + r.getPartitionsSkipped() + " partitions already done)" : ""));
+        } catch (Exception e) {
+            System.out.println("Interest posting failed: " + e.getMessage());
         }
     }
 
     private void viewAccountDetails() {
         try {
-            Account acc = askAccount("Enter Account No: ");
-            System.out.println("Account: " + acc.getAccountNo());
-            System.out.println("Type  : " + (acc instanceof SavingsAccount ? "Savings" : "Current"));
-            System.out.println("Owner : " + acc.getCustomerId());
-            System.out.println("Opened: " + acc.getCreatedAt().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            System.out.println("Balance: " + acc.getBalance());
-            System.out.println("Min Balance: " + acc.getMinimumBalance());
-            System.out.println("Interest Rate: " + acc.getInterestRate() + "%");
-            System.out.println("Annual Interest (as of now): " + acc.calculateInterest());
+            AccountSummary s = bank.getAccountSummary(askAccount("Enter Account No: "));
+            System.out.println("Account: " + s.getAccountNo());
+            System.out.println("Type  : " + s.getAccountType().getDisplayName());
+            System.out.println("Owner : " + s.getCustomerId());
+            System.out.println("Opened: " + s.getOpenedAt());
+            System.out.println("Balance: " + s.getBalance());
+            System.out.println("Min Balance: " + s.getMinimumBalance());
+            System.out.println("Interest Rate: " + s.getInterestRate() + "%");
+            System.out.println("Annual Interest (as of now): " + s.getAnnualInterest());
+            AggregateView owner = bank.getCustomerAggregate(s.getCustomerId());
+            System.out.println("Owner's Total Balance: " + owner.getTotalBalance()
+                    + " (today: deposited " + owner.getDeposited() + ", withdrawn " + owner.getWithdrawn() + ")");
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
         }
@@ -229,57 +359,121 @@ public class Main {
         try {
             System.out.print("Enter Account No (or press Enter for ALL): ");
             String accNo = scanner.nextLine().trim();
-            List<Transaction> list = transactions.stream()
-                    .filter(t -> accNo.isEmpty() || t.getAccountNo().equalsIgnoreCase(accNo))
-                    .sorted(Comparator.comparing(Transaction::getTimestamp))
-                    .collect(Collectors.toList());
+            if (!accNo.isEmpty()) {
+                viewStatement(accNo);
+                return;
+            }
+            List<Transaction> list = bank.getTransactionHistory(accNo);
 
             if (list.isEmpty()) {
                 System.out.println("No transactions found.");
                 return;
             }
             System.out.println("=== Transactions ===");
-            list.forEach(t -> System.out.println("  " + t.getType() + " - " + t.getAmount() + " at " + t.getTimestamp().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")) + (t.getNotes() == null ? "" : " | " + t.getNotes())));
+            list.forEach(this::printTransaction);
         } catch (Exception e) {
             System.out.println("Error: " + e.getMessage());
         }
     }
 
+    private void viewStatement(String accNo) {
+        System.out.print("From date (yyyy-MM-dd, Enter for beginning): ");
+        String fromStr = scanner.nextLine().trim();
+        LocalDateTime from = fromStr.isEmpty() ? null : LocalDate.parse(fromStr).atStartOfDay();
+        System.out.print("To date (yyyy-MM-dd, Enter for today): ");
+        String toStr = scanner.nextLine().trim();
+        LocalDateTime to = toStr.isEmpty() ? null : LocalDate.parse(toStr).plusDays(1).atStartOfDay();
+
+        String cursor = null;
+        boolean first = true;
+        while (true) {
+            HistoryPage page = bank.getStatementPage(accNo, from, to, cursor, STATEMENT_PAGE_SIZE);
+            if (first && page.getItems().isEmpty()) {
+                System.out.println("No transactions found.");
+                return;
+            }
+            if (first) System.out.println("=== Transactions ===");
+            first = false;
+            page.getItems().forEach(this::printTransaction);
+            if (!page.hasMore()) return;
+            System.out.print("-- Press Enter for more, or q to stop: ");
+            if (scanner.nextLine().trim().equalsIgnoreCase("q")) return;
+            cursor = page.getNextCursor();
+        }
+    }
 
+    private void exportStatements() {
+        try {
+            System.out.print("Account numbers (comma separated, or ALL): ");
+            String input = scanner.nextLine().trim().toUpperCase();
+            List<String> accountNos = new ArrayList<>();
+            if (input.equals("ALL")) {
+                bank.getAccounts().findAll().forEach(a -> accountNos.add(a.getAccountNo()));
+            } else {
+                for (String s : input.split(",")) {
+                    if (!s.isBlank()) accountNos.add(bank.findAccount(s.trim()).getAccountNo());
+                }
+            }
+            System.out.print("Format (1=CSV, 2=Binary): ");
+            StatementFormat format = "2".equals(scanner.nextLine().trim()) ? StatementFormat.BINARY : StatementFormat.CSV;
+            System.out.print("From date (yyyy-MM-dd, Enter for beginning): ");
+            String fromStr = scanner.nextLine().trim();
+            System.out.print("To date (yyyy-MM-dd, Enter for today): ");
+            String toStr = scanner.nextLine().trim();
+            Path dir = dataDir.resolve("statements");
+            long rows = bank.exportStatements(accountNos,
+                    fromStr.isEmpty() ? null : LocalDate.parse(fromStr).atStartOfDay(),
+                    toStr.isEmpty() ? null : LocalDate.parse(toStr).plusDays(1).atStartOfDay(),
+                    format, dir);
+            System.out.println("✓ Exported " + accountNos.size() + " statements (" + rows + " transactions) to " + dir);
+        } catch (Exception e) {
+            System.out.println("Export failed: " + e.getMessage());
+        }
+    }
 
-
-    private Account askAccount(String prompt) throws InvalidAccountException {
-        System.out.print(prompt);
-        String accNo = scanner.nextLine().trim().toUpperCase();
-        Account acc = accounts.get(accNo);
-        if (acc == null) throw new InvalidAccountException("Account not found: " + accNo);
-        return acc;
+    private void bulkOnboarding() {
+        try {
+            System.out.println("Rows: customerId,name,email,phone,dob[,accountType,initialDeposit]");
+            System.out.print("CSV file path: ");
+            Path csv = Paths.get(scanner.nextLine().trim());
+            Files.createDirectories(dataDir);
+            Path report = dataDir.resolve("onboarding-errors.csv");
+            BulkOnboardingResult r = bank.onboardCustomers(csv, report);
+            System.out.println("✓ Read " + r.getRowsRead() + " rows: " + r.getCustomersImported() + " customers imported, "
+                    + r.getAccountsOpened() + " accounts opened, " + r.getErrorCount() + " rejected.");
+            if (r.getErrorCount() > 0) {
+                r.getErrors().stream().limit(10).forEach(e -> System.out.println("  " + e));
+                System.out.println("All rejected rows: " + report);
+            }
+        } catch (Exception e) {
+            System.out.println("Onboarding failed: " + e.getMessage());
+        }
     }
 
-    private String generateAccountNo() {
-        return "ACC" + (++accountCounter);
+    private void printTransaction(Transaction t) {
+        System.out.println("  " + t.getType() + " - " + t.getAmount() + " at " + t.getTimestamp().format(DISPLAY_TIME) + (t.getNotes() == null ? "" : " | " + t.getNotes()));
     }
 
-    private String autoCreateCustomerIfNeeded() {
-        String id = "CUST" + (++customerCounter);
-        customers.putIfAbsent(id, new Customer(id, "Concurrency User", "user"+customerCounter+"@example.com", "9" + (int)(Math.random()*1000000000L), LocalDate.of(1990,1,1)));
-        return id;
+
+
+
+    private Account askAccount(String prompt) throws InvalidAccountException {
+        System.out.print(prompt);
+        String accNo = scanner.nextLine().trim().toUpperCase();
+        return bank.findAccount(accNo);
     }
 
-    private Account autoCreateAccountIfNeeded(String custId, AccountType type, BigDecimal initial) {
-        Optional<Account> maybe = accounts.values().stream()
-                .filter(a -> a.getCustomerId().equals(custId) && ((type == AccountType.SAVINGS && a instanceof SavingsAccount) || (type == AccountType.CURRENT && a instanceof CurrentAccount)))
-                .findFirst();
-        if (maybe.isPresent()) return maybe.get();
-        Account a = (type == AccountType.SAVINGS)
-                ? new SavingsAccount(generateAccountNo(), custId, initial)
-                : new CurrentAccount(generateAccountNo(), custId, initial);
-        accounts.put(a.getAccountNo(), a);
-        transactions.add(new Transaction(UUID.randomUUID().toString(), a.getAccountNo(), TransactionType.DEPOSIT, initial, LocalDateTime.now(), "Initial"));
-        return a;
+    // Drives the bank from the worker pool; true when every invariant held.
+    private boolean runLoad(LoadGenerator.Options options) throws InterruptedException {
+        try {
+            return new LoadGenerator(bank, executorService, WORKER_THREADS, options).run(System.out);
+        } finally {
+            shutdown();
+        }
     }
 
     private void shutdown() {
         executorService.shutdown();
+        bank.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,112 @@
+package com.hdfc.minibank.domain;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Immutable amount of Indian rupees held as a whole number of paise.
+ * All arithmetic is overflow checked and throws {@link ArithmeticException} instead of wrapping.
+ * Conversion to and from {@link BigDecimal} is meant for the I/O boundaries only.
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+    public static final long PAISE_PER_RUPEE = 100;
+    public static final long BASIS_POINTS_PER_UNIT = 10_000;
+
+    public static final Money ZERO = new Money(0);
+
+    private final long paise;
+
+    private Money(long paise) {
+        this.paise = paise;
+    }
+
+    public static Money ofPaise(long paise) {
+        return paise == 0 ? ZERO : new Money(paise);
+    }
+
+    public static Money ofRupees(long rupees) {
+        return ofPaise(Math.multiplyExact(rupees, PAISE_PER_RUPEE));
+    }
+
+    // Rejects amounts with fractions of a paisa rather than silently rounding them.
+    public static Money of(BigDecimal amount) {
+        if (amount == null) return null;
+        try {
+            return ofPaise(amount.setScale(SCALE, RoundingMode.UNNECESSARY).unscaledValue().longValueExact());
+        } catch (ArithmeticException e) {
+            throw new ArithmeticException("Amount must have at most " + SCALE + " decimal places and fit in range: " + amount.toPlainString());
+        }
+    }
+
+    public static Money parse(String text) {
+        return of(new BigDecimal(text.trim()));
+    }
+
+    public long toPaise() { return paise; }
+
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(paise, SCALE);
+    }
+
+    public Money plus(Money other) {
+        return ofPaise(Math.addExact(paise, other.paise));
+    }
+
+    public Money minus(Money other) {
+        return ofPaise(Math.subtractExact(paise, other.paise));
+    }
+
+    // Returns basisPoints/10000 of this amount, rounded to a whole paisa with the given mode.
+    public Money percentage(long basisPoints, RoundingMode mode) {
+        return ofPaise(divide(Math.multiplyExact(paise, basisPoints), BASIS_POINTS_PER_UNIT, mode));
+    }
+
+    public boolean isPositive() { return paise > 0; }
+    public boolean isNegative() { return paise < 0; }
+    public boolean isZero() { return paise == 0; }
+
+    public static long divide(long dividend, long divisor, RoundingMode mode) {
+        long q = dividend / divisor;
+        long r = dividend % divisor;
+        if (r == 0) return q;
+        int sign = (dividend < 0) == (divisor < 0) ? 1 : -1;
+        long twiceRem = Math.abs(r) * 2;
+        long absDivisor = Math.abs(divisor);
+        boolean awayFromZero;
+        switch (mode) {
+            case UP: awayFromZero = true; break;
+            case DOWN: awayFromZero = false; break;
+            case CEILING: awayFromZero = sign > 0; break;
+            case FLOOR: awayFromZero = sign < 0; break;
+            case HALF_UP: awayFromZero = twiceRem >= absDivisor; break;
+            case HALF_DOWN: awayFromZero = twiceRem > absDivisor; break;
+            case HALF_EVEN: awayFromZero = twiceRem > absDivisor || (twiceRem == absDivisor && (q & 1) != 0); break;
+            default: throw new ArithmeticException("Rounding necessary");
+        }
+        return awayFromZero ? q + sign : q;
+    }
+
+    @Override
+    public int compareTo(Money o) {
+        return Long.compare(paise, o.paise);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Money)) return false;
+        return paise == ((Money) o).paise;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(paise);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
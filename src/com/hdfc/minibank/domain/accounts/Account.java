@@ -1,53 +1,106 @@
 package com.hdfc.minibank.domain.accounts;
 
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
 import com.hdfc.minibank.exceptions.InsufficientBalanceException;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.Objects;
 
+/**
+ * Balance updates are lock-free: deposits and withdrawals are compare-and-set loops on a
+ * volatile long, and reads never block. Subclasses decide whether a withdrawal is allowed
+ * from a snapshot of the balance, which is re-checked whenever the CAS loses a race.
+ */
 public abstract class Account {
+    // Interest is rounded to the nearest paisa, ties to even.
+    public static final RoundingMode INTEREST_ROUNDING = RoundingMode.HALF_EVEN;
+    public static final int DAYS_PER_YEAR = 365;
+
     private final String accountNo;
     private final String customerId;
-    protected BigDecimal balance;
+    private volatile long balance; // paise
     private final LocalDateTime createdAt;
 
-    public Account(String accountNo, String customerId, BigDecimal initialBalance) {
+    private static final VarHandle BALANCE;
+    static {
+        try {
+            BALANCE = MethodHandles.lookup().findVarHandle(Account.class, "balance", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    public Account(String accountNo, String customerId, Money initialBalance) {
+        this(accountNo, customerId, initialBalance, LocalDateTime.now());
+    }
+
+    public Account(String accountNo, String customerId, Money initialBalance, LocalDateTime createdAt) {
         this.accountNo = accountNo;
         this.customerId = customerId;
-        this.balance = initialBalance == null ? BigDecimal.ZERO : initialBalance;
-        this.createdAt = LocalDateTime.now();
+        this.balance = initialBalance == null ? 0 : initialBalance.toPaise();
+        this.createdAt = createdAt;
     }
 
     public String getAccountNo() { return accountNo; }
     public String getCustomerId() { return customerId; }
-    public synchronized BigDecimal getBalance() { return balance; }
+    public Money getBalance() { return Money.ofPaise(balance); }
+    public long getBalancePaise() { return balance; }
     public LocalDateTime getCreatedAt() { return createdAt; }
 
-    public abstract BigDecimal getInterestRate();
-    public abstract BigDecimal getMinimumBalance();
+    public abstract AccountType getAccountType();
+    public abstract int getInterestRateBasisPoints();
+    public abstract Money getMinimumBalance();
 
-    public BigDecimal calculateInterest() {
-        return balance.multiply(getInterestRate()).divide(new BigDecimal("100"));
+    public BigDecimal getInterestRate() {
+        return BigDecimal.valueOf(getInterestRateBasisPoints(), 2);
     }
 
-    protected abstract boolean canWithdraw(BigDecimal amount);
+    public Money calculateInterest() {
+        return getBalance().percentage(getInterestRateBasisPoints(), INTEREST_ROUNDING);
+    }
 
-    public synchronized void deposit(BigDecimal amount) {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    // One day's share of the annual interest on the current balance (actual/365).
+    public Money calculateDailyInterest() {
+        long scaled = Math.multiplyExact(getBalancePaise(), (long) getInterestRateBasisPoints());
+        return Money.ofPaise(Money.divide(scaled, Money.BASIS_POINTS_PER_UNIT * DAYS_PER_YEAR, INTEREST_ROUNDING));
+    }
+
+    protected abstract boolean canWithdraw(long balance, long amount);
+
+    public void deposit(Money amount) {
+        if (amount == null || !amount.isPositive()) {
             throw new IllegalArgumentException("Deposit amount must be positive");
         }
-        this.balance = this.balance.add(amount);
+        long paise = amount.toPaise();
+        long current;
+        do {
+            current = balance;
+        } while (!BALANCE.weakCompareAndSet(this, current, Math.addExact(current, paise)));
     }
 
-    public synchronized void withdraw(BigDecimal amount) throws InsufficientBalanceException {
-        if (amount == null || amount.compareTo(BigDecimal.ZERO) <= 0) {
+    public void withdraw(Money amount) throws InsufficientBalanceException {
+        if (amount == null || !amount.isPositive()) {
             throw new IllegalArgumentException("Withdrawal amount must be positive");
         }
-        if (!canWithdraw(amount)) {
-            throw new InsufficientBalanceException("Insufficient balance or minimum balance constraint violated");
-        }
-        this.balance = this.balance.subtract(amount);
+        long paise = amount.toPaise();
+        long current;
+        do {
+            current = balance;
+            if (!canWithdraw(current, paise)) {
+                throw new InsufficientBalanceException("Insufficient balance or minimum balance constraint violated");
+            }
+        } while (!BALANCE.weakCompareAndSet(this, current, current - paise));
+    }
+
+    // Takes back a deposit whose transaction could not be journaled. Unlike withdraw it does not
+    // check the minimum balance, as the amount was only just added.
+    public void reverseDeposit(Money amount) {
+        BALANCE.getAndAdd(this, -amount.toPaise());
     }
 
     @Override
@@ -62,4 +115,4 @@ public abstract class Account {
     public int hashCode() {
         return Objects.hash(accountNo);
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,40 @@
 package com.hdfc.minibank.domain.accounts;
 
-import java.math.BigDecimal;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.time.LocalDateTime;
 
 public class CurrentAccount extends Account {
 
-    private static final BigDecimal INTEREST_RATE = BigDecimal.ZERO;
-    private static final BigDecimal MIN_BALANCE = BigDecimal.ZERO;
+    private static final int INTEREST_RATE_BPS = 0;
+    private static final Money MIN_BALANCE = Money.ZERO;
 
-    public CurrentAccount(String accountNo, String customerId, BigDecimal initialBalance) {
+    public CurrentAccount(String accountNo, String customerId, Money initialBalance) {
         super(accountNo, customerId, initialBalance);
     }
 
+    public CurrentAccount(String accountNo, String customerId, Money initialBalance, LocalDateTime createdAt) {
+        super(accountNo, customerId, initialBalance, createdAt);
+    }
+
+    @Override
+    public AccountType getAccountType() {
+        return AccountType.CURRENT;
+    }
+
     @Override
-    public BigDecimal getInterestRate() {
-        return INTEREST_RATE;
+    public int getInterestRateBasisPoints() {
+        return INTEREST_RATE_BPS;
     }
 
     @Override
-    public BigDecimal getMinimumBalance() {
+    public Money getMinimumBalance() {
         return MIN_BALANCE;
     }
 
     @Override
-    protected boolean canWithdraw(BigDecimal amount) {
-        return getBalance().compareTo(amount) >= 0;
+    protected boolean canWithdraw(long balance, long amount) {
+        return balance >= amount;
     }
-}
\ No newline at end of file
+}
@@ -1,28 +1,40 @@
 package com.hdfc.minibank.domain.accounts;
 
-import java.math.BigDecimal;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.time.LocalDateTime;
 
 public class SavingsAccount extends Account {
 
-    private static final BigDecimal INTEREST_RATE = new BigDecimal("4.5");
-    private static final BigDecimal MIN_BALANCE = new BigDecimal("1000");
+    private static final int INTEREST_RATE_BPS = 450; // 4.5%
+    private static final Money MIN_BALANCE = Money.ofRupees(1000);
 
-    public SavingsAccount(String accountNo, String customerId, BigDecimal initialBalance) {
+    public SavingsAccount(String accountNo, String customerId, Money initialBalance) {
         super(accountNo, customerId, initialBalance);
     }
 
+    public SavingsAccount(String accountNo, String customerId, Money initialBalance, LocalDateTime createdAt) {
+        super(accountNo, customerId, initialBalance, createdAt);
+    }
+
+    @Override
+    public AccountType getAccountType() {
+        return AccountType.SAVINGS;
+    }
+
     @Override
-    public BigDecimal getInterestRate() {
-        return INTEREST_RATE;
+    public int getInterestRateBasisPoints() {
+        return INTEREST_RATE_BPS;
     }
 
     @Override
-    public BigDecimal getMinimumBalance() {
+    public Money getMinimumBalance() {
         return MIN_BALANCE;
     }
 
     @Override
-    protected boolean canWithdraw(BigDecimal amount) {
-        return getBalance().subtract(amount).compareTo(MIN_BALANCE) >= 0;
+    protected boolean canWithdraw(long balance, long amount) {
+        return balance - MIN_BALANCE.toPaise() >= amount;
     }
-}
\ No newline at end of file
+}
@@ -4,7 +4,8 @@ public enum TransactionType {
     DEPOSIT("Deposit"),
     WITHDRAWAL("Withdrawal"),
     TRANSFER_IN("Transfer In"),
-    TRANSFER_OUT("Transfer Out");
+    TRANSFER_OUT("Transfer Out"),
+    INTEREST("Interest");
 
     private final String displayName;
 
@@ -0,0 +1,7 @@
+package com.hdfc.minibank.exceptions;
+
+public class VelocityLimitExceededException extends Exception {
+    public VelocityLimitExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,324 @@
+package com.hdfc.minibank.http;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.InvalidAccountException;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.repository.HistoryPage;
+import com.hdfc.minibank.service.AccountSummary;
+import com.hdfc.minibank.service.AggregateView;
+import com.hdfc.minibank.service.BankService;
+import com.hdfc.minibank.service.StatementFormat;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP front end over {@link BankService}. Requests are handled on a pool of
+ * -Dminibank.http.threads threads (200 by default; most of their time is spent waiting for the
+ * journal's group commit) with up to -Dminibank.http.queue requests (10,000) waiting for one.
+ * Beyond that the server closes new connections instead of queuing them.
+ *
+ * Parameters are read from the query string and from an application/x-www-form-urlencoded body;
+ * responses are JSON. With -Dminibank.ingest=true deposits and withdrawals go through the
+ * bank's micro-batching ingestion queue; each request still waits for its own result.
+ * Withdrawals and transfers refused by the velocity limits get 429 Too Many Requests.
+ *
+ *   POST /customers                  id, name, email, phone, dob (yyyy-MM-dd)
+ *   GET  /customers/{id}/totals      total balance of the customer's accounts and today's flows
+ *   GET  /totals/{type}              the same over every SAVINGS or CURRENT account
+ *   POST /accounts                   customerId, type (SAVINGS|CURRENT), initial
+ *   GET  /accounts/{no}
+ *   GET  /accounts/{no}/summary      balance with minimum balance, interest rate and annual interest
+ *   POST /accounts/{no}/deposit      amount
+ *   POST /accounts/{no}/withdraw     amount
+ *   POST /transfers                  from, to, amount
+ *   GET  /accounts/{no}/statement    from, to (yyyy-MM-dd, optional), cursor, limit
+ *   GET  /accounts/{no}/statement    format (csv|binary), from, to: the whole statement, streamed
+ *
+ * The steps of cross-shard transfers are not served here but by {@link TransferStepServer}.
+ */
+public class BankHttpServer implements AutoCloseable {
+
+    private static final int DEFAULT_BACKLOG = 4096;
+    private static final int DEFAULT_PAGE_SIZE = 50;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+
+    private final BankService bank;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean ingest = Boolean.getBoolean("minibank.ingest");
+
+    public BankHttpServer(BankService bank, int port) throws IOException {
+        this.bank = bank;
+        this.server = HttpServer.create(new InetSocketAddress(port), DEFAULT_BACKLOG);
+        this.executor = newRequestExecutor();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    // A request rejected by the full queue makes HttpServer close its connection.
+    static ExecutorService newRequestExecutor() {
+        int threads = Integer.getInteger("minibank.http.threads", 200);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Integer.getInteger("minibank.http.queue", 10_000)), new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        boolean close = true;
+        try {
+            String method = ex.getRequestMethod();
+            String[] path = ex.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+            Map<String, String> params = params(ex);
+
+            if (path.length == 1 && path[0].equals("customers") && method.equals("POST")) {
+                Customer c = bank.registerCustomer(new Customer(
+                        required(params, "id").toUpperCase(Locale.ROOT), required(params, "name"),
+                        required(params, "email"), required(params, "phone"), LocalDate.parse(required(params, "dob"))));
+                send(ex, 201, "{\"id\":" + str(c.getId()) + "}");
+            } else if (path.length == 3 && path[0].equals("customers") && path[2].equals("totals") && method.equals("GET")) {
+                String id = path[1].toUpperCase(Locale.ROOT);
+                if (bank.getCustomers().exists(id)) send(ex, 200, totals(bank.getCustomerAggregate(id)));
+                else send(ex, 404, error("Customer not found: " + id));
+            } else if (path.length == 2 && path[0].equals("totals") && method.equals("GET")) {
+                send(ex, 200, totals(bank.getAccountTypeAggregate(AccountType.valueOf(path[1].toUpperCase(Locale.ROOT)))));
+            } else if (path.length == 1 && path[0].equals("accounts") && method.equals("POST")) {
+                Account a = bank.openAccount(required(params, "customerId").toUpperCase(Locale.ROOT),
+                        AccountType.valueOf(required(params, "type").toUpperCase(Locale.ROOT)), Money.parse(required(params, "initial")));
+                send(ex, 201, account(a));
+            } else if (path.length == 1 && path[0].equals("transfers") && method.equals("POST")) {
+                Account from = bank.findAccount(required(params, "from").toUpperCase(Locale.ROOT));
+                Account to = bank.findAccount(required(params, "to").toUpperCase(Locale.ROOT));
+                bank.transfer(from, to, Money.parse(required(params, "amount")));
+                send(ex, 200, "{\"from\":" + account(from) + ",\"to\":" + account(to) + "}");
+            } else if (path.length >= 2 && path[0].equals("accounts")) {
+                Account acc = bank.findAccount(path[1].toUpperCase(Locale.ROOT));
+                String action = path.length == 3 ? path[2] : "";
+                if (path.length == 2 && method.equals("GET")) {
+                    send(ex, 200, account(acc));
+                } else if (action.equals("summary") && method.equals("GET")) {
+                    send(ex, 200, summary(bank.getAccountSummary(acc)));
+                } else if (action.equals("deposit") && method.equals("POST")) {
+                    if (ingest) await(bank.depositAsync(acc, Money.parse(required(params, "amount"))));
+                    else bank.deposit(acc, Money.parse(required(params, "amount")));
+                    send(ex, 200, account(acc));
+                } else if (action.equals("withdraw") && method.equals("POST")) {
+                    if (ingest) await(bank.withdrawAsync(acc, Money.parse(required(params, "amount"))));
+                    else bank.withdraw(acc, Money.parse(required(params, "amount")));
+                    send(ex, 200, account(acc));
+                } else if (action.equals("statement") && method.equals("GET") && params.containsKey("format")) {
+                    exportStatement(ex, acc, params);
+                } else if (action.equals("statement") && method.equals("GET")) {
+                    send(ex, 200, statement(acc, params));
+                } else {
+                    send(ex, 404, error("Not found"));
+                }
+            } else {
+                send(ex, 404, error("Not found"));
+            }
+        } catch (IOException e) {
+            // the client is gone or a streamed response broke off; left open, the exchange is
+            // dropped by the server without ending the response, so the client cannot take a
+            // partial statement for a whole one
+            close = false;
+            throw e;
+        } catch (InvalidAccountException e) {
+            send(ex, 404, error(e.getMessage()));
+        } catch (InsufficientBalanceException e) {
+            send(ex, 409, error(e.getMessage()));
+        } catch (VelocityLimitExceededException e) {
+            send(ex, 429, error(e.getMessage()));
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException e) {
+            send(ex, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            send(ex, 500, error("Internal error: " + e.getMessage()));
+        } finally {
+            if (close) ex.close();
+        }
+    }
+
+    private static void await(CompletableFuture<?> future) throws InsufficientBalanceException, VelocityLimitExceededException {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof InsufficientBalanceException) throw (InsufficientBalanceException) e.getCause();
+            if (e.getCause() instanceof VelocityLimitExceededException) throw (VelocityLimitExceededException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    private String statement(Account acc, Map<String, String> params) {
+        String from = params.get("from");
+        String to = params.get("to");
+        String cursor = params.get("cursor");
+        int limit = params.containsKey("limit") ? Math.min(Integer.parseInt(params.get("limit")), MAX_PAGE_SIZE) : DEFAULT_PAGE_SIZE;
+        HistoryPage page = bank.getStatementPage(acc.getAccountNo(),
+                from == null ? null : LocalDate.parse(from).atStartOfDay(),
+                to == null ? null : LocalDate.parse(to).plusDays(1).atStartOfDay(),
+                cursor, limit);
+        StringBuilder sb = new StringBuilder(64 + page.getItems().size() * 128);
+        sb.append("{\"accountNo\":").append(str(acc.getAccountNo())).append(",\"transactions\":[");
+        boolean first = true;
+        for (Transaction t : page.getItems()) {
+            if (!first) sb.append(',');
+            first = false;
+            sb.append("{\"id\":").append(t.getId())
+                    .append(",\"type\":").append(str(t.getType().name()))
+                    .append(",\"amount\":").append(t.getAmount())
+                    .append(",\"timestamp\":").append(str(t.getTimestamp().format(TIMESTAMP_FORMAT)))
+                    .append(",\"notes\":").append(str(t.getNotes())).append('}');
+        }
+        sb.append("],\"nextCursor\":").append(page.hasMore() ? str(page.getNextCursor()) : "null").append('}');
+        return sb.toString();
+    }
+
+    // Streams the statement as a chunked response, so it is never held in memory.
+    private void exportStatement(HttpExchange ex, Account acc, Map<String, String> params) throws IOException {
+        StatementFormat format = StatementFormat.valueOf(params.get("format").toUpperCase(Locale.ROOT));
+        String from = params.get("from");
+        String to = params.get("to");
+        LocalDateTime fromTime = from == null ? null : LocalDate.parse(from).atStartOfDay();
+        LocalDateTime toTime = to == null ? null : LocalDate.parse(to).plusDays(1).atStartOfDay();
+        ex.getResponseHeaders().set("Content-Type", format == StatementFormat.CSV ? "text/csv; charset=utf-8" : "application/octet-stream");
+        ex.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + acc.getAccountNo() + "." + format.getExtension() + "\"");
+        ex.sendResponseHeaders(200, 0);
+        OutputStream out = ex.getResponseBody();
+        try {
+            bank.exportStatement(acc.getAccountNo(), fromTime, toTime, format, Channels.newChannel(out));
+        } catch (RuntimeException e) {
+            // the 200 is already sent, so there is no error response left to give
+            System.err.println("Statement export of " + acc.getAccountNo() + " failed: " + e);
+            throw new IOException("Statement export failed", e);
+        }
+        out.close();
+    }
+
+    static String account(Account a) {
+        return "{\"accountNo\":" + str(a.getAccountNo())
+                + ",\"customerId\":" + str(a.getCustomerId())
+                + ",\"type\":" + str(a.getAccountType().name())
+                + ",\"balance\":" + a.getBalance() + "}";
+    }
+
+    private static String summary(AccountSummary s) {
+        return "{\"accountNo\":" + str(s.getAccountNo())
+                + ",\"customerId\":" + str(s.getCustomerId())
+                + ",\"type\":" + str(s.getAccountType().name())
+                + ",\"openedAt\":" + str(s.getOpenedAt())
+                + ",\"balance\":" + s.getBalance()
+                + ",\"minimumBalance\":" + s.getMinimumBalance()
+                + ",\"interestRate\":" + s.getInterestRate()
+                + ",\"annualInterest\":" + s.getAnnualInterest() + "}";
+    }
+
+    private static String totals(AggregateView v) {
+        return "{\"date\":" + str(v.getDate().toString())
+                + ",\"totalBalance\":" + v.getTotalBalance()
+                + ",\"deposited\":" + v.getDeposited()
+                + ",\"withdrawn\":" + v.getWithdrawn()
+                + ",\"transfersIn\":" + v.getTransfersIn()
+                + ",\"transfersOut\":" + v.getTransfersOut() + "}";
+    }
+
+    static String error(String message) {
+        return "{\"error\":" + str(message) + "}";
+    }
+
+    static String str(String s) {
+        if (s == null) return "null";
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    static String required(Map<String, String> params, String name) {
+        String v = params.get(name);
+        if (v == null || v.isBlank()) throw new IllegalArgumentException("Missing parameter: " + name);
+        return v.trim();
+    }
+
+    static Map<String, String> params(HttpExchange ex) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(ex.getRequestURI().getRawQuery(), params);
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        if (contentType != null && contentType.startsWith("application/x-www-form-urlencoded")) {
+            try (InputStream in = ex.getRequestBody()) {
+                parseForm(new String(in.readAllBytes(), StandardCharsets.UTF_8), params);
+            }
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> into) {
+        if (form == null || form.isEmpty()) return;
+        for (String pair : form.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            into.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+        }
+    }
+
+    static void send(HttpExchange ex, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        ex.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
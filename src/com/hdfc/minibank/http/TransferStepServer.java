@@ -0,0 +1,167 @@
+package com.hdfc.minibank.http;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.InvalidAccountException;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.service.BankService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Internal listener of a shard for the cross-shard transfer steps sent by
+ * {@link com.hdfc.minibank.shard.ShardRouter}, on a port of its own next to the public
+ * {@link BankHttpServer}. It only runs on a sharded bank (-Dminibank.shards > 1) and only answers
+ * requests that carry the secret shared by the shards and the router, taken from the
+ * MINIBANK_SHARD_SECRET environment variable:
+ *
+ *   Authorization: Bearer {secret}
+ *
+ *   POST /transfers/debit     debit, credit, refund, from, to, amount: answers with a receipt
+ *   POST /transfers/credit    debit, credit, refund, from, to, amount, receipt
+ *   POST /transfers/refund    debit, credit, refund, from, to, amount, receipt
+ *
+ * debit, credit and refund are the ids of the saga's three steps, each applied at most once.
+ * The receipt is an HMAC of the whole saga that the source shard hands out once the debit is
+ * applied, so a credit or refund that does not belong to a debit made on some shard is refused
+ * with 403; a refund must in addition name a debit of this shard. It is keyed with a second
+ * secret from MINIBANK_RECEIPT_SECRET that only the shards hold, so the router, which holds the
+ * bearer secret, can pass receipts on but not make them.
+ */
+public class TransferStepServer implements AutoCloseable {
+
+    public static final String SECRET_ENV = "MINIBANK_SHARD_SECRET";
+    public static final String RECEIPT_SECRET_ENV = "MINIBANK_RECEIPT_SECRET";
+    private static final int MIN_SECRET_LENGTH = 16;
+    private static final int DEFAULT_BACKLOG = 1024;
+
+    private final BankService bank;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final byte[] authorization;
+    private final SecretKeySpec receiptKey;
+
+    public TransferStepServer(BankService bank, int port, String secret, String receiptSecret) throws IOException {
+        if (!bank.isSharded()) {
+            throw new IllegalStateException("Transfer steps are only served by a sharded bank (-Dminibank.shards > 1)");
+        }
+        if (secret == null || secret.length() < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException(SECRET_ENV + " must hold a secret of at least " + MIN_SECRET_LENGTH + " characters");
+        }
+        if (receiptSecret == null || receiptSecret.length() < MIN_SECRET_LENGTH) {
+            throw new IllegalStateException(RECEIPT_SECRET_ENV + " must hold a secret of at least " + MIN_SECRET_LENGTH + " characters");
+        }
+        if (receiptSecret.equals(secret)) {
+            throw new IllegalStateException(RECEIPT_SECRET_ENV + " must differ from " + SECRET_ENV + ", which the router holds");
+        }
+        this.bank = bank;
+        this.authorization = ("Bearer " + secret).getBytes(StandardCharsets.UTF_8);
+        this.receiptKey = new SecretKeySpec(receiptSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        this.server = HttpServer.create(new InetSocketAddress(port), DEFAULT_BACKLOG);
+        this.executor = BankHttpServer.newRequestExecutor();
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange ex) throws IOException {
+        try {
+            String header = ex.getRequestHeaders().getFirst("Authorization");
+            if (header == null || !MessageDigest.isEqual(authorization, header.getBytes(StandardCharsets.UTF_8))) {
+                BankHttpServer.send(ex, 401, BankHttpServer.error("Unauthorized"));
+                return;
+            }
+            String[] path = ex.getRequestURI().getPath().replaceAll("^/+|/+$", "").split("/");
+            if (path.length != 2 || !path[0].equals("transfers") || !ex.getRequestMethod().equals("POST")) {
+                BankHttpServer.send(ex, 404, BankHttpServer.error("Not found"));
+                return;
+            }
+            Map<String, String> params = BankHttpServer.params(ex);
+            long debitId = Long.parseLong(BankHttpServer.required(params, "debit"));
+            long creditId = Long.parseLong(BankHttpServer.required(params, "credit"));
+            long refundId = Long.parseLong(BankHttpServer.required(params, "refund"));
+            String from = BankHttpServer.required(params, "from").toUpperCase(Locale.ROOT);
+            String to = BankHttpServer.required(params, "to").toUpperCase(Locale.ROOT);
+            Money amount = Money.parse(BankHttpServer.required(params, "amount"));
+            String receipt = receipt(debitId, creditId, refundId, from, to, amount);
+
+            Account acc;
+            switch (path[1]) {
+                case "debit":
+                    acc = bank.findAccount(from);
+                    bank.debitTransferStep(debitId, acc, amount, to);
+                    BankHttpServer.send(ex, 200, "{\"receipt\":" + BankHttpServer.str(receipt) + "}");
+                    return;
+                case "credit":
+                    if (!matches(receipt, params.get("receipt"))) break;
+                    acc = bank.findAccount(to);
+                    bank.creditTransferStep(creditId, acc, amount, from);
+                    BankHttpServer.send(ex, 200, BankHttpServer.account(acc));
+                    return;
+                case "refund":
+                    if (!matches(receipt, params.get("receipt"))) break;
+                    acc = bank.findAccount(from);
+                    bank.refundTransferStep(refundId, debitId, acc, amount, to);
+                    BankHttpServer.send(ex, 200, BankHttpServer.account(acc));
+                    return;
+                default:
+                    BankHttpServer.send(ex, 404, BankHttpServer.error("Not found"));
+                    return;
+            }
+            BankHttpServer.send(ex, 403, BankHttpServer.error("No matching debit for transfer " + debitId));
+        } catch (InvalidAccountException e) {
+            BankHttpServer.send(ex, 404, BankHttpServer.error(e.getMessage()));
+        } catch (InsufficientBalanceException e) {
+            BankHttpServer.send(ex, 409, BankHttpServer.error(e.getMessage()));
+        } catch (VelocityLimitExceededException e) {
+            BankHttpServer.send(ex, 429, BankHttpServer.error(e.getMessage()));
+        } catch (IllegalArgumentException | ArithmeticException e) {
+            BankHttpServer.send(ex, 400, BankHttpServer.error(e.getMessage()));
+        } catch (RuntimeException e) {
+            BankHttpServer.send(ex, 500, BankHttpServer.error("Internal error: " + e.getMessage()));
+        } finally {
+            ex.close();
+        }
+    }
+
+    private String receipt(long debitId, long creditId, long refundId, String from, String to, Money amount) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(receiptKey);
+            String saga = debitId + ":" + creditId + ":" + refundId + ":" + from + ":" + to + ":" + amount.toPaise();
+            return HexFormat.of().formatHex(mac.doFinal(saga.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private static boolean matches(String expected, String given) {
+        return given != null && MessageDigest.isEqual(expected.getBytes(StandardCharsets.UTF_8), given.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,84 @@
+package com.hdfc.minibank.ids;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic counter that survives restarts. Values are handed out from an AtomicLong; every
+ * blockSize values the new high-water mark is written to a file (and forced) before any value
+ * of that block is returned. After a restart the sequence continues from the high-water mark,
+ * so values are never reused, at the cost of skipping what was left of the last block.
+ */
+public final class BlockSequence {
+
+    public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+    private final Path file;
+    private final int blockSize;
+    private final AtomicLong next;
+    private volatile long limit;
+
+    // In-memory sequence starting after the given value.
+    public BlockSequence(long last) {
+        this.file = null;
+        this.blockSize = DEFAULT_BLOCK_SIZE;
+        this.next = new AtomicLong(last + 1);
+        this.limit = Long.MAX_VALUE;
+    }
+
+    // Persistent sequence; starts after the given value unless the file holds a higher mark.
+    public BlockSequence(Path file, long last, int blockSize) {
+        if (blockSize <= 0) throw new IllegalArgumentException("Block size must be positive");
+        this.file = file;
+        this.blockSize = blockSize;
+        long start = last + 1;
+        try {
+            if (Files.exists(file)) {
+                start = Math.max(start, Long.parseLong(Files.readString(file, StandardCharsets.UTF_8).trim()));
+            } else {
+                Files.createDirectories(file.toAbsolutePath().getParent());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read sequence file " + file, e);
+        }
+        this.next = new AtomicLong(start);
+        this.limit = start;
+    }
+
+    public long next() {
+        long v = next.getAndIncrement();
+        if (v < limit) return v;
+        reserve(v);
+        return v;
+    }
+
+    // Ensures later values are greater than the given one (e.g. the highest number found on replay).
+    public void advancePast(long value) {
+        next.accumulateAndGet(value + 1, Math::max);
+    }
+
+    private synchronized void reserve(long upTo) {
+        long l = limit;
+        if (upTo < l) return;
+        while (l <= upTo) l += blockSize;
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ch.write(ByteBuffer.wrap(Long.toString(l).getBytes(StandardCharsets.UTF_8)));
+                ch.force(true);
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not reserve sequence block in " + file, e);
+        }
+        limit = l;
+    }
+}
@@ -0,0 +1,13 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.time.LocalDateTime;
+
+// Receives the contents of checkpoint files, oldest first.
+public interface CheckpointHandler {
+    void onCustomer(Customer customer);
+    void onAccountOpened(String accountNo, String customerId, AccountType type, LocalDateTime openedAt);
+    void onBalanceChange(String accountNo, long paise);
+}
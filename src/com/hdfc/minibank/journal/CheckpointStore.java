@@ -0,0 +1,681 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Binary checkpoints of the bank's state folded out of the journal, so a restart loads the
+ * balances from them and only applies the journal written since.
+ *
+ * A checkpoint file covers the journal range (fromLsn, toLsn] and holds the customers and
+ * accounts opened in it and the net balance change of every account it touched, so its size
+ * follows the accounts that changed rather than the transactions. The first file is a base
+ * starting at LSN 0; each later checkpoint is a delta chained onto the previous file, and once
+ * {@code maxDeltas} deltas have piled up the chain is merged into a new base, one record per
+ * customer and account.
+ *
+ * The transactions of each checkpoint's range go to a history file next to it, written first,
+ * column by column with account numbers and notes stored once per file. The history files
+ * since the last base are merged into one when the chain is, so that merge only touches recent
+ * history. Once a checkpoint is written the journal segments it covers are dropped, and a
+ * restart reads balances from the checkpoints, the history from these files and replays only
+ * the journal after {@link #getLsn}.
+ *
+ * Files are built from the durable journal rather than from the live accounts, so writers are
+ * never paused and every file is an exact cut at its LSN. They are written to a temporary
+ * file, forced and then renamed, and end with a CRC32C of their contents.
+ */
+public class CheckpointStore implements AutoCloseable {
+
+    public static final int DEFAULT_MAX_DELTAS = 8;
+
+    private static final int MAGIC = 0x48444332; // "HDC2"
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final byte TAG_END = 0;
+    private static final byte TAG_CUSTOMER = 1;
+    private static final byte TAG_ACCOUNT = 2;
+    private static final byte TAG_BALANCE = 3;
+    private static final int HEADER_SIZE = 20;
+    private static final int TRAILER_SIZE = 1 + 4 + 4 + 4;
+
+    private static final int HISTORY_MAGIC = 0x48444831; // "HDH1"
+    private static final byte TAG_ACCOUNT_NO = 4;
+    private static final byte TAG_NOTES = 5;
+    private static final byte TAG_ROW = 6;
+    private static final int HISTORY_TRAILER_SIZE = 1 + 8 + 4;
+
+    private static final Pattern BASE_FILE = Pattern.compile("base-(\\d{20})\\.ckp");
+    private static final Pattern DELTA_FILE = Pattern.compile("delta-(\\d{20})-(\\d{20})\\.ckp");
+    private static final Pattern HISTORY_FILE = Pattern.compile("history-(\\d{20})-(\\d{20})\\.txh");
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private final Path directory;
+    private final int maxDeltas;
+    private final List<Path> chain = new ArrayList<>(); // base first, then deltas in LSN order
+    private final NavigableMap<Long, Path> history = new TreeMap<>(); // by the LSN each file starts at
+    private long baseLsn;
+    private long lsn;
+    private int customerCount;
+    private int accountCount;
+    private TransactionJournal journal;
+    private ScheduledExecutorService scheduler;
+
+    private CheckpointStore(Path directory, int maxDeltas) {
+        this.directory = directory;
+        this.maxDeltas = maxDeltas;
+    }
+
+    public static CheckpointStore open(Path directory) throws IOException {
+        return open(directory, DEFAULT_MAX_DELTAS);
+    }
+
+    // Finds the newest base and the deltas that chain onto it; anything else is left over from
+    // an interrupted checkpoint and is deleted.
+    public static CheckpointStore open(Path directory, int maxDeltas) throws IOException {
+        if (maxDeltas < 0) throw new IllegalArgumentException("maxDeltas must not be negative");
+        Files.createDirectories(directory);
+        CheckpointStore store = new CheckpointStore(directory, maxDeltas);
+        List<Path> files = new ArrayList<>();
+        try (Stream<Path> list = Files.list(directory)) {
+            list.forEach(files::add);
+        }
+        Path base = null;
+        Map<Long, Path> deltasByFrom = new HashMap<>();
+        Map<Path, Long> deltaTo = new HashMap<>();
+        List<Path> historyFiles = new ArrayList<>();
+        for (Path p : files) {
+            String name = p.getFileName().toString();
+            Matcher b = BASE_FILE.matcher(name);
+            Matcher d = DELTA_FILE.matcher(name);
+            if (b.matches()) {
+                long to = Long.parseLong(b.group(1));
+                if (base == null || to > store.lsn) {
+                    base = p;
+                    store.lsn = to;
+                }
+            } else if (d.matches()) {
+                deltasByFrom.put(Long.parseLong(d.group(1)), p);
+                deltaTo.put(p, Long.parseLong(d.group(2)));
+            } else if (HISTORY_FILE.matcher(name).matches()) {
+                historyFiles.add(p);
+            }
+        }
+        if (base != null) {
+            store.chain.add(base);
+            store.baseLsn = store.lsn;
+            Path next;
+            while ((next = deltasByFrom.get(store.lsn)) != null) {
+                store.chain.add(next);
+                store.lsn = deltaTo.get(next);
+            }
+        }
+        store.chainHistory(historyFiles);
+        for (Path p : files) {
+            if (!store.chain.contains(p) && !store.history.containsValue(p)) Files.delete(p);
+        }
+        for (Path p : store.chain) {
+            store.addCounts(p);
+        }
+        return store;
+    }
+
+    // Journal LSN up to which the checkpoints cover; replay the journal from here.
+    public synchronized long getLsn() {
+        return lsn;
+    }
+
+    public synchronized int getFileCount() {
+        return chain.size();
+    }
+
+    // Totals over the checkpoint files, so repositories can be sized before load().
+    public synchronized int getCustomerCount() { return customerCount; }
+    public synchronized int getAccountCount() { return accountCount; }
+
+    // Feeds every checkpoint into the handler, oldest first, and returns getLsn().
+    public synchronized long load(CheckpointHandler handler) throws IOException {
+        long expectedFrom = 0;
+        for (Path file : chain) {
+            expectedFrom = read(file, expectedFrom, handler);
+        }
+        return lsn;
+    }
+
+    // Feeds the transactions up to getLsn() into the handler in journal order.
+    public synchronized void loadHistory(HistoryHandler handler) throws IOException {
+        long expectedFrom = 0;
+        for (Path file : history.values()) {
+            expectedFrom = readHistory(file, expectedFrom, handler);
+        }
+    }
+
+    // Folds the journal written since the last checkpoint into a new file and its history file,
+    // merges the chain when it has grown too long and drops the journal segments now covered.
+    public synchronized void checkpoint(TransactionJournal journal) throws IOException {
+        long to = journal.getDurableLsn();
+        if (to <= lsn) return;
+        long from = lsn;
+        // the history file goes first, so there is never a checkpoint without it
+        Path historyFile = historyPath(from, to);
+        writeHistory(historyFile, from, to, h -> journal.replay(from, to, h));
+        Path stale = history.put(from, historyFile); // left by a checkpoint that failed halfway
+        if (stale != null && !stale.equals(historyFile)) Files.deleteIfExists(stale);
+        Path file = chain.isEmpty() ? basePath(to) : deltaPath(from, to);
+        writeCheckpoint(file, from, to, w -> journal.replay(from, to, w));
+        chain.add(file);
+        addCounts(file);
+        lsn = to;
+        if (chain.size() == 1) baseLsn = lsn;
+        if (chain.size() > maxDeltas + 1) compact();
+        journal.deleteSegmentsBefore(lsn);
+    }
+
+    // Takes a checkpoint every intervalSeconds from a daemon thread (never if it is 0), and a
+    // last one on close().
+    public synchronized void startPeriodic(TransactionJournal journal, long intervalSeconds) {
+        if (this.journal != null) return;
+        this.journal = journal;
+        if (intervalSeconds <= 0) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "checkpointer");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint(journal);
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Checkpoint failed: " + e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    // Close the journal first so the last checkpoint covers everything written to it.
+    @Override
+    public void close() {
+        ScheduledExecutorService s;
+        TransactionJournal j;
+        synchronized (this) {
+            s = scheduler;
+            j = journal;
+            scheduler = null;
+            journal = null;
+        }
+        if (s != null) {
+            s.shutdown();
+            try {
+                s.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (j != null) {
+            try {
+                checkpoint(j);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not write checkpoint in " + directory, e);
+            }
+        }
+    }
+
+    // Rewrites the whole chain as one base; the merged balances are written at the end. The
+    // history files since the previous base become one file; older history is left alone.
+    private void compact() throws IOException {
+        Path merged = basePath(lsn);
+        List<Path> old = new ArrayList<>(chain);
+        writeCheckpoint(merged, 0, lsn, w -> {
+            long expectedFrom = 0;
+            for (Path file : old) {
+                expectedFrom = read(file, expectedFrom, w);
+            }
+        });
+        chain.clear();
+        chain.add(merged);
+        for (Path p : old) {
+            if (!p.equals(merged)) Files.deleteIfExists(p);
+        }
+
+        NavigableMap<Long, Path> recent = history.tailMap(baseLsn, true);
+        if (recent.size() > 1) {
+            long from = baseLsn;
+            Path mergedHistory = historyPath(from, lsn);
+            List<Path> oldHistory = new ArrayList<>(recent.values());
+            writeHistory(mergedHistory, from, lsn, h -> {
+                long expectedFrom = from;
+                for (Path file : oldHistory) {
+                    expectedFrom = readHistory(file, expectedFrom, h);
+                }
+            });
+            recent.clear();
+            history.put(from, mergedHistory);
+            for (Path p : oldHistory) Files.deleteIfExists(p);
+        }
+        baseLsn = lsn;
+    }
+
+    // Links the history files from LSN 0 up to lsn, taking the longest file where a merge was
+    // interrupted; files past lsn belong to a checkpoint that was never completed.
+    private void chainHistory(List<Path> files) {
+        Map<Long, Path> byFrom = new HashMap<>();
+        Map<Path, Long> toOf = new HashMap<>();
+        for (Path p : files) {
+            Matcher m = HISTORY_FILE.matcher(p.getFileName().toString());
+            if (!m.matches()) continue;
+            long from = Long.parseLong(m.group(1));
+            long to = Long.parseLong(m.group(2));
+            Path other = byFrom.get(from);
+            if (to <= lsn && (other == null || to > toOf.get(other))) {
+                byFrom.put(from, p);
+                toOf.put(p, to);
+            }
+        }
+        long at = 0;
+        while (at < lsn) {
+            Path next = byFrom.get(at);
+            if (next == null) throw new IllegalStateException("History after LSN " + at + " is missing in " + directory);
+            history.put(at, next);
+            at = toOf.get(next);
+        }
+    }
+
+    private Path basePath(long to) {
+        return directory.resolve(String.format("base-%020d.ckp", to));
+    }
+
+    private Path deltaPath(long from, long to) {
+        return directory.resolve(String.format("delta-%020d-%020d.ckp", from, to));
+    }
+
+    private Path historyPath(long from, long to) {
+        return directory.resolve(String.format("history-%020d-%020d.txh", from, to));
+    }
+
+    private void addCounts(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer trailer = ByteBuffer.allocate(TRAILER_SIZE);
+            long pos = ch.size() - TRAILER_SIZE;
+            if (pos < HEADER_SIZE) throw new IllegalStateException("Checkpoint " + file + " is truncated");
+            while (trailer.hasRemaining()) {
+                if (ch.read(trailer, pos + trailer.position()) < 0) throw new EOFException(file.toString());
+            }
+            trailer.flip();
+            if (trailer.get() != TAG_END) throw new IllegalStateException("Checkpoint " + file + " is corrupt");
+            customerCount += trailer.getInt();
+            accountCount += trailer.getInt();
+        }
+    }
+
+    // --- file format ---------------------------------------------------------------------
+    // [int magic][long fromLsn][long toLsn] then tagged records, a trailer and the CRC32C of
+    // everything before it. Strings are [short length][UTF-8 bytes], length -1 for null.
+    // Checkpoints end with TAG_END and the number of customers and accounts in the file.
+    // History files hold rows of [long id][int account][byte type][long paise][long epoch
+    // millis][int notes, -1 for none], where account and notes number the TAG_ACCOUNT_NO and
+    // TAG_NOTES strings in the order they appear, and end with TAG_END and the number of rows.
+
+    private interface Body {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+
+    private interface Source<H> {
+        void feed(H handler) throws IOException;
+    }
+
+    private static void writeCheckpoint(Path file, long from, long to, Source<Writer> source) throws IOException {
+        write(file, MAGIC, from, to, out -> {
+            Writer w = new Writer(out);
+            source.feed(w);
+            w.finish();
+            out.writeByte(TAG_END);
+            out.writeInt(w.customers);
+            out.writeInt(w.accounts);
+        });
+    }
+
+    private static void writeHistory(Path file, long from, long to, Source<HistoryWriter> source) throws IOException {
+        write(file, HISTORY_MAGIC, from, to, out -> {
+            HistoryWriter w = new HistoryWriter(out);
+            source.feed(w);
+            out.writeByte(TAG_END);
+            out.writeLong(w.rows);
+        });
+    }
+
+    private static void write(Path file, int magic, long from, long to, Body body) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+            // checksummed below the buffer so the CRC is updated a whole buffer at a time
+            CheckedOutputStream checked = new CheckedOutputStream(fos, new CRC32C());
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(checked, BUFFER_SIZE));
+            out.writeInt(magic);
+            out.writeLong(from);
+            out.writeLong(to);
+            body.writeTo(out);
+            out.flush();
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            fos.getChannel().force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Verifies the checksum, then feeds the records to the handler; returns the LSN the file ends at.
+    private static long read(Path file, long expectedFrom, CheckpointHandler handler) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            verify(file, ch, TRAILER_SIZE);
+            Input in = new Input(ch);
+            if (in.getInt() != MAGIC) throw new IllegalStateException("Not a checkpoint file in the current format: " + file);
+            long from = in.getLong();
+            long to = in.getLong();
+            if (from != expectedFrom) {
+                throw new IllegalStateException("Checkpoint " + file + " starts at LSN " + from + ", expected " + expectedFrom);
+            }
+            while (true) {
+                byte tag = in.get();
+                switch (tag) {
+                    case TAG_CUSTOMER: {
+                        String id = in.getString();
+                        String name = in.getString();
+                        String email = in.getString();
+                        String phone = in.getString();
+                        long dob = in.getLong();
+                        handler.onCustomer(new Customer(id, name, email, phone, dob == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dob)));
+                        break;
+                    }
+                    case TAG_ACCOUNT: {
+                        String accountNo = in.getString();
+                        String customerId = in.getString();
+                        AccountType type = ACCOUNT_TYPES[in.get()];
+                        handler.onAccountOpened(accountNo, customerId, type, in.getTimestamp());
+                        break;
+                    }
+                    case TAG_BALANCE: {
+                        String accountNo = in.getString();
+                        handler.onBalanceChange(accountNo, in.getLong());
+                        break;
+                    }
+                    case TAG_END:
+                        return to;
+                    default:
+                        throw new IllegalStateException("Unknown record tag " + tag + " in checkpoint " + file);
+                }
+            }
+        }
+    }
+
+    // As read(), for a history file.
+    private static long readHistory(Path file, long expectedFrom, HistoryHandler handler) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            verify(file, ch, HISTORY_TRAILER_SIZE);
+            Input in = new Input(ch);
+            if (in.getInt() != HISTORY_MAGIC) throw new IllegalStateException("Not a history file: " + file);
+            long from = in.getLong();
+            long to = in.getLong();
+            if (from != expectedFrom) {
+                throw new IllegalStateException("History file " + file + " starts at LSN " + from + ", expected " + expectedFrom);
+            }
+            List<String> accountNos = new ArrayList<>();
+            List<String> notes = new ArrayList<>();
+            while (true) {
+                byte tag = in.get();
+                switch (tag) {
+                    case TAG_ACCOUNT_NO:
+                        accountNos.add(in.getString());
+                        break;
+                    case TAG_NOTES:
+                        notes.add(in.getString());
+                        break;
+                    case TAG_ROW: {
+                        long id = in.getLong();
+                        String accountNo = accountNos.get(in.getInt());
+                        TransactionType type = TRANSACTION_TYPES[in.get()];
+                        long paise = in.getLong();
+                        long millis = in.getLong();
+                        int note = in.getInt();
+                        handler.onHistory(id, accountNo, type, paise, millis, note < 0 ? null : notes.get(note));
+                        break;
+                    }
+                    case TAG_END:
+                        return to;
+                    default:
+                        throw new IllegalStateException("Unknown record tag " + tag + " in history file " + file);
+                }
+            }
+        }
+    }
+
+    private static void verify(Path file, FileChannel ch, int trailerSize) throws IOException {
+        long size = ch.size();
+        if (size < HEADER_SIZE + trailerSize) throw new IllegalStateException("Checkpoint " + file + " is truncated");
+        CRC32C crc = new CRC32C();
+        ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long pos = 0;
+        while (pos < size - 4) {
+            buf.clear().limit((int) Math.min(BUFFER_SIZE, size - 4 - pos));
+            int n = ch.read(buf, pos);
+            if (n < 0) throw new EOFException(file.toString());
+            pos += n;
+            crc.update(buf.flip());
+        }
+        ByteBuffer trailer = ByteBuffer.allocate(4);
+        while (trailer.hasRemaining()) {
+            if (ch.read(trailer, pos + trailer.position()) < 0) throw new EOFException(file.toString());
+        }
+        if (trailer.getInt(0) != (int) crc.getValue()) throw new IllegalStateException("Checkpoint " + file + " is corrupt");
+    }
+
+    // Big-endian reader over a file channel that refills a heap buffer as records are consumed.
+    private static final class Input {
+        private final FileChannel ch;
+        private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+
+        Input(FileChannel ch) {
+            this.ch = ch;
+            buf.limit(0);
+        }
+
+        byte get() throws IOException {
+            ensure(1);
+            return buf.get();
+        }
+
+        int getInt() throws IOException {
+            ensure(4);
+            return buf.getInt();
+        }
+
+        long getLong() throws IOException {
+            ensure(8);
+            return buf.getLong();
+        }
+
+        String getString() throws IOException {
+            ensure(2);
+            short length = buf.getShort();
+            if (length < 0) return null;
+            ensure(length);
+            String s = new String(buf.array(), buf.position(), length, StandardCharsets.UTF_8);
+            buf.position(buf.position() + length);
+            return s;
+        }
+
+        LocalDateTime getTimestamp() throws IOException {
+            ensure(12);
+            long seconds = buf.getLong();
+            return LocalDateTime.ofEpochSecond(seconds, buf.getInt(), ZoneOffset.UTC);
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() >= n) return;
+            buf.compact();
+            while (buf.position() < n) {
+                if (ch.read(buf) < 0) throw new EOFException("Checkpoint ends in the middle of a record");
+            }
+            buf.flip();
+        }
+    }
+
+    // Streams customers and accounts straight to the file and sums balance changes per account
+    // for finish(). Takes input from the journal and from older checkpoints.
+    private static final class Writer implements JournalReplayHandler, CheckpointHandler {
+        private final DataOutputStream out;
+        private final Map<String, long[]> balances = new LinkedHashMap<>();
+        private int customers;
+        private int accounts;
+
+        Writer(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void onCustomer(Customer c) {
+            try {
+                out.writeByte(TAG_CUSTOMER);
+                writeString(out, c.getId());
+                writeString(out, c.getName());
+                writeString(out, c.getEmail());
+                writeString(out, c.getPhone());
+                out.writeLong(c.getDateOfBirth() == null ? Long.MIN_VALUE : c.getDateOfBirth().toEpochDay());
+                customers++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onAccountOpened(String accountNo, String customerId, AccountType type, LocalDateTime openedAt) {
+            try {
+                out.writeByte(TAG_ACCOUNT);
+                writeString(out, accountNo);
+                writeString(out, customerId);
+                out.writeByte(type.ordinal());
+                writeTimestamp(openedAt);
+                accounts++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void onTransaction(Transaction t) {
+            onBalanceChange(t.getAccountNo(), JournalRecovery.balanceEffect(t));
+        }
+
+        @Override
+        public void onBalanceChange(String accountNo, long paise) {
+            long[] sum = balances.computeIfAbsent(accountNo, k -> new long[1]);
+            sum[0] = Math.addExact(sum[0], paise);
+        }
+
+        void finish() throws IOException {
+            for (Map.Entry<String, long[]> e : balances.entrySet()) {
+                out.writeByte(TAG_BALANCE);
+                writeString(out, e.getKey());
+                out.writeLong(e.getValue()[0]);
+            }
+        }
+
+        private void writeTimestamp(LocalDateTime ts) throws IOException {
+            out.writeLong(ts.toEpochSecond(ZoneOffset.UTC));
+            out.writeInt(ts.getNano());
+        }
+    }
+
+    // Streams transactions to a history file, from the journal or from older history files,
+    // giving each account number and note a number the first time it appears.
+    private static final class HistoryWriter implements JournalReplayHandler, HistoryHandler {
+        private final DataOutputStream out;
+        private final Map<String, Integer> accountNos = new HashMap<>();
+        private final Map<String, Integer> notes = new HashMap<>();
+        private long rows;
+
+        HistoryWriter(DataOutputStream out) {
+            this.out = out;
+        }
+
+        // customers and accounts are kept in the checkpoint files
+        @Override public void onCustomer(Customer c) {}
+        @Override public void onAccountOpened(String accountNo, String customerId, AccountType type, LocalDateTime openedAt) {}
+
+        @Override
+        public void onTransaction(Transaction t) {
+            onHistory(t.getId(), t.getAccountNo(), t.getType(), t.getAmount().toPaise(),
+                    t.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli(), t.getNotes());
+        }
+
+        @Override
+        public void onHistory(long id, String accountNo, TransactionType type, long amountPaise, long timestampMillis, String note) {
+            try {
+                int account = code(accountNos, TAG_ACCOUNT_NO, accountNo);
+                int noteCode = note == null ? -1 : code(notes, TAG_NOTES, note);
+                out.writeByte(TAG_ROW);
+                out.writeLong(id);
+                out.writeInt(account);
+                out.writeByte(type.ordinal());
+                out.writeLong(amountPaise);
+                out.writeLong(timestampMillis);
+                out.writeInt(noteCode);
+                rows++;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private int code(Map<String, Integer> codes, byte tag, String s) throws IOException {
+            Integer code = codes.get(s);
+            if (code == null) {
+                code = codes.size();
+                codes.put(s, code);
+                out.writeByte(tag);
+                writeString(out, s);
+            }
+            return code;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeShort(-1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("Checkpoint field too long");
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+}
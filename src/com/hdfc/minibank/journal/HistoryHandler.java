@@ -0,0 +1,9 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+// Receives the transactions kept in the checkpoint store's history files, oldest first, as
+// column values so no Transaction has to be built for them.
+public interface HistoryHandler {
+    void onHistory(long id, String accountNo, TransactionType type, long amountPaise, long timestampMillis, String notes);
+}
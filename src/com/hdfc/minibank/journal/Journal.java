@@ -0,0 +1,41 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+
+import java.util.List;
+
+public interface Journal extends AutoCloseable {
+
+    long appendCustomer(Customer customer);
+    long appendAccountOpened(Account account);
+    long appendTransaction(Transaction transaction);
+
+    // Appends the transactions as one record, which recovery replays whole or not at all (such as
+    // both legs of a transfer); returns its LSN, or 0 when the list is empty.
+    long appendTransactions(List<Transaction> transactions);
+
+    void awaitDurable(long lsn);
+
+    @Override
+    void close();
+
+    // A journal that keeps nothing, for in-memory banks such as benchmarks and load tests.
+    static Journal disabled() {
+        return Disabled.INSTANCE;
+    }
+
+    final class Disabled implements Journal {
+        private static final Disabled INSTANCE = new Disabled();
+
+        private Disabled() {}
+
+        @Override public long appendCustomer(Customer customer) { return 0; }
+        @Override public long appendAccountOpened(Account account) { return 0; }
+        @Override public long appendTransaction(Transaction transaction) { return 0; }
+        @Override public long appendTransactions(List<Transaction> transactions) { return 0; }
+        @Override public void awaitDurable(long lsn) {}
+        @Override public void close() {}
+    }
+}
@@ -0,0 +1,121 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.accounts.CurrentAccount;
+import com.hdfc.minibank.domain.accounts.SavingsAccount;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.repository.AccountRepository;
+import com.hdfc.minibank.repository.CustomerRepository;
+import com.hdfc.minibank.repository.TransactionRepository;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Rebuilds customers, accounts and transaction history from the latest checkpoint followed
+ * by a journal replay. Balances start from the checkpointed ones and add the net of every
+ * journaled transaction after it, since the initial deposit of an account is itself
+ * journaled as a DEPOSIT. The transactions the checkpoint covers come back from its history
+ * files through {@link #onHistory}, for the history only.
+ */
+public class JournalRecovery implements JournalReplayHandler, CheckpointHandler, HistoryHandler {
+
+    private final CustomerRepository customers;
+    private final AccountRepository accounts;
+    private final TransactionRepository transactions;
+    private final Map<String, OpenedAccount> opened = new LinkedHashMap<>();
+    private int replayed;
+    private long maxTransactionId;
+
+    public JournalRecovery(CustomerRepository customers, AccountRepository accounts, TransactionRepository transactions) {
+        this.customers = customers;
+        this.accounts = accounts;
+        this.transactions = transactions;
+    }
+
+    @Override
+    public void onCustomer(Customer customer) {
+        customers.add(customer);
+        replayed++;
+    }
+
+    @Override
+    public void onAccountOpened(String accountNo, String customerId, AccountType type, LocalDateTime openedAt) {
+        opened.put(accountNo, new OpenedAccount(customerId, type, openedAt));
+        replayed++;
+    }
+
+    @Override
+    public void onTransaction(Transaction transaction) {
+        OpenedAccount acc = opened.get(transaction.getAccountNo());
+        if (acc == null) {
+            throw new IllegalStateException("Journal transaction for unknown account: " + transaction.getAccountNo());
+        }
+        acc.balance = Math.addExact(acc.balance, balanceEffect(transaction));
+        transactions.add(transaction);
+        maxTransactionId = Math.max(maxTransactionId, transaction.getId());
+        replayed++;
+    }
+
+    @Override
+    public void onBalanceChange(String accountNo, long paise) {
+        OpenedAccount acc = opened.get(accountNo);
+        if (acc == null) {
+            throw new IllegalStateException("Checkpoint balance for unknown account: " + accountNo);
+        }
+        acc.balance = Math.addExact(acc.balance, paise);
+    }
+
+    // Its effect on the balance is already in the checkpoint.
+    @Override
+    public void onHistory(long id, String accountNo, TransactionType type, long amountPaise, long timestampMillis, String notes) {
+        transactions.add(id, accountNo, type, amountPaise, timestampMillis, notes);
+        maxTransactionId = Math.max(maxTransactionId, id);
+        replayed++;
+    }
+
+    // Signed change in paise the transaction makes to its account's balance.
+    static long balanceEffect(Transaction t) {
+        switch (t.getType()) {
+            case WITHDRAWAL:
+            case TRANSFER_OUT:
+                return -t.getAmount().toPaise();
+            default:
+                return t.getAmount().toPaise();
+        }
+    }
+
+    public long getMaxTransactionId() {
+        return maxTransactionId;
+    }
+
+    // Publishes the replayed accounts with their rebuilt balances; call once the journal is open.
+    public int complete() {
+        for (Map.Entry<String, OpenedAccount> e : opened.entrySet()) {
+            OpenedAccount acc = e.getValue();
+            accounts.add(acc.type == AccountType.SAVINGS
+                    ? new SavingsAccount(e.getKey(), acc.customerId, Money.ofPaise(acc.balance), acc.openedAt)
+                    : new CurrentAccount(e.getKey(), acc.customerId, Money.ofPaise(acc.balance), acc.openedAt));
+        }
+        opened.clear();
+        return replayed;
+    }
+
+    private static final class OpenedAccount {
+        private final String customerId;
+        private final AccountType type;
+        private final LocalDateTime openedAt;
+        private long balance; // paise
+
+        private OpenedAccount(String customerId, AccountType type, LocalDateTime openedAt) {
+            this.customerId = customerId;
+            this.type = type;
+            this.openedAt = openedAt;
+        }
+    }
+}
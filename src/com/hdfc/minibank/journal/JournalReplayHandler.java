@@ -0,0 +1,13 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.time.LocalDateTime;
+
+public interface JournalReplayHandler {
+    void onCustomer(Customer customer);
+    void onAccountOpened(String accountNo, String customerId, AccountType type, LocalDateTime openedAt);
+    void onTransaction(Transaction transaction);
+}
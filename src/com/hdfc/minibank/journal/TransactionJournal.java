@@ -0,0 +1,549 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of customers, account openings and transactions, stored in
+ * pre-allocated memory-mapped segment files.
+ *
+ * Every record is framed as [int payloadLength][int crc32c][payload] and the payload
+ * starts with a one byte record kind. A zero length marks the end of the written part
+ * of a segment; a bad checksum marks a torn write and is treated the same way on recovery,
+ * but only in the last segment. Earlier segments were forced whole before the next one was
+ * created, so a bad frame in one of them is corruption and recovery refuses to go on.
+ * {@link #appendTransactions} puts all of its transactions in one frame, so the legs of a
+ * transfer are recovered together or not at all.
+ *
+ * {@link #append} only copies the record into the mapped segment and returns its log
+ * sequence number (LSN). Durability is provided by a background flusher that forces the
+ * segment to disk at a fixed interval or when a caller blocks in {@link #awaitDurable},
+ * so concurrent writers share a single fsync (group commit).
+ *
+ * Segments that are wholly covered by a checkpoint, whose transactions the checkpoint store
+ * keeps in its history files, can be dropped with {@link #deleteSegmentsBefore};
+ * {@link #open(Path, long, JournalReplayHandler)} then only replays the records after the
+ * checkpoint.
+ */
+public class TransactionJournal implements Journal {
+
+    public static final long DEFAULT_SEGMENT_SIZE = 64L * 1024 * 1024;
+    public static final long DEFAULT_FLUSH_INTERVAL_MICROS = 2_000;
+
+    private static final int SEGMENT_MAGIC = 0x48444A33; // "HDJ3"
+    private static final int SEGMENT_HEADER_SIZE = 16;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_PAYLOAD_SIZE = 64 * 1024;
+    private static final String SEGMENT_PREFIX = "journal-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final byte KIND_CUSTOMER = 1;
+    private static final byte KIND_ACCOUNT_OPENED = 2;
+    private static final byte KIND_TRANSACTION = 3;
+    private static final byte KIND_TRANSACTIONS = 4;
+
+    private static final AccountType[] ACCOUNT_TYPES = AccountType.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private final Path directory;
+    private final long segmentSize;
+    private final long flushIntervalNanos;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ByteBuffer scratch = ByteBuffer.allocate(MAX_PAYLOAD_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private long segmentIndex;
+    private MappedByteBuffer segment;
+    private int writePos;
+    private long writtenLsn;
+
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition flushRequested = syncLock.newCondition();
+    private final Condition durableAdvanced = syncLock.newCondition();
+    private boolean syncPending;
+    private volatile long durableLsn;
+    private volatile boolean closed;
+    private final Thread flusher;
+
+    private TransactionJournal(Path directory, long segmentSize, long flushIntervalMicros) {
+        if (segmentSize <= SEGMENT_HEADER_SIZE + FRAME_HEADER_SIZE + MAX_PAYLOAD_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Unsupported segment size: " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.flushIntervalNanos = TimeUnit.MICROSECONDS.toNanos(flushIntervalMicros);
+        this.flusher = new Thread(this::flushLoop, "journal-flusher");
+        this.flusher.setDaemon(true);
+    }
+
+    public static TransactionJournal open(Path directory, JournalReplayHandler handler) throws IOException {
+        return open(directory, 0, handler);
+    }
+
+    // Replays only the records after fromLsn, e.g. the LSN a checkpoint was taken at.
+    public static TransactionJournal open(Path directory, long fromLsn, JournalReplayHandler handler) throws IOException {
+        return open(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_FLUSH_INTERVAL_MICROS, fromLsn, handler);
+    }
+
+    // Replays every intact record after fromLsn into the handler, then positions the writer after the last one.
+    public static TransactionJournal open(Path directory, long segmentSize, long flushIntervalMicros,
+                                          long fromLsn, JournalReplayHandler handler) throws IOException {
+        Files.createDirectories(directory);
+        TransactionJournal journal = new TransactionJournal(directory, segmentSize, flushIntervalMicros);
+        journal.recover(fromLsn, handler);
+        journal.flusher.start();
+        return journal;
+    }
+
+    @Override
+    public long appendCustomer(Customer c) {
+        appendLock.lock();
+        try {
+            scratch.clear();
+            scratch.put(KIND_CUSTOMER);
+            putString(c.getId());
+            putString(c.getName());
+            putString(c.getEmail());
+            putString(c.getPhone());
+            scratch.putLong(c.getDateOfBirth() == null ? Long.MIN_VALUE : c.getDateOfBirth().toEpochDay());
+            return writeFrame();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long appendAccountOpened(Account account) {
+        appendLock.lock();
+        try {
+            scratch.clear();
+            scratch.put(KIND_ACCOUNT_OPENED);
+            putString(account.getAccountNo());
+            putString(account.getCustomerId());
+            scratch.put((byte) account.getAccountType().ordinal());
+            putTimestamp(account.getCreatedAt());
+            return writeFrame();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    @Override
+    public long appendTransaction(Transaction t) {
+        appendLock.lock();
+        try {
+            return writeTransaction(t);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // One frame for the whole list; a list that does not fit is refused before anything is written.
+    @Override
+    public long appendTransactions(List<Transaction> transactions) {
+        if (transactions.isEmpty()) return 0;
+        appendLock.lock();
+        try {
+            scratch.clear();
+            scratch.put(KIND_TRANSACTIONS);
+            scratch.putInt(transactions.size());
+            for (Transaction t : transactions) putTransaction(t);
+            return writeFrame();
+        } catch (BufferOverflowException e) {
+            throw new IllegalArgumentException("Too many transactions for one journal record: " + transactions.size());
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private long writeTransaction(Transaction t) {
+        scratch.clear();
+        scratch.put(KIND_TRANSACTION);
+        putTransaction(t);
+        return writeFrame();
+    }
+
+    private void putTransaction(Transaction t) {
+        scratch.putLong(t.getId());
+        putString(t.getAccountNo());
+        scratch.put((byte) t.getType().ordinal());
+        putAmount(t.getAmount());
+        putTimestamp(t.getTimestamp());
+        putString(t.getNotes());
+    }
+
+    // Blocks until every record up to and including the given LSN has been forced to disk.
+    @Override
+    public void awaitDurable(long lsn) {
+        if (durableLsn >= lsn) return;
+        syncLock.lock();
+        try {
+            syncPending = true;
+            flushRequested.signal();
+            while (durableLsn < lsn) {
+                if (closed && !flusher.isAlive()) {
+                    throw new IllegalStateException("Journal closed before LSN " + lsn + " became durable");
+                }
+                durableAdvanced.await(10, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for journal sync", e);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long getWrittenLsn() {
+        appendLock.lock();
+        try {
+            return writtenLsn;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    public long getDurableLsn() {
+        return durableLsn;
+    }
+
+    // Replays the durable records in (fromLsn, toLsn] without disturbing writers; toLsn must not
+    // be past getDurableLsn(). Used to fold the journal into checkpoints.
+    public void replay(long fromLsn, long toLsn, JournalReplayHandler handler) throws IOException {
+        if (toLsn > durableLsn) throw new IllegalArgumentException("LSN " + toLsn + " is not durable yet");
+        if (toLsn <= fromLsn) return;
+        for (long index = Math.max(0, (fromLsn - 1) / segmentSize); index <= (toLsn - 1) / segmentSize; index++) {
+            try (FileChannel ch = FileChannel.open(segmentPath(index), StandardOpenOption.READ)) {
+                replaySegment(index, ch.map(FileChannel.MapMode.READ_ONLY, 0, segmentSize), fromLsn, toLsn, handler);
+            }
+        }
+    }
+
+    // Deletes the segments that hold nothing after lsn. The segment being written is always kept.
+    public void deleteSegmentsBefore(long lsn) throws IOException {
+        long current;
+        appendLock.lock();
+        try {
+            current = segmentIndex;
+        } finally {
+            appendLock.unlock();
+        }
+        long keepFrom = Math.min((lsn - 1) / segmentSize, current);
+        for (long index : listSegments()) {
+            if (index < keepFrom) Files.deleteIfExists(segmentPath(index));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        syncLock.lock();
+        try {
+            syncPending = true;
+            flushRequested.signal();
+        } finally {
+            syncLock.unlock();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // --- writing -------------------------------------------------------------------------
+
+    private long writeFrame() {
+        if (closed) throw new IllegalStateException("Journal is closed");
+        int length = scratch.position();
+        if (writePos + FRAME_HEADER_SIZE + length > segmentSize) {
+            rollover();
+        }
+        crc.reset();
+        crc.update(scratch.array(), 0, length);
+        segment.putInt(writePos + 4, (int) crc.getValue());
+        segment.put(writePos + FRAME_HEADER_SIZE, scratch.array(), 0, length);
+        // the length is written last so a reader never sees a frame before its payload
+        segment.putInt(writePos, length);
+        writePos += FRAME_HEADER_SIZE + length;
+        writtenLsn = segmentIndex * segmentSize + writePos;
+        return writtenLsn;
+    }
+
+    private void rollover() {
+        MappedByteBuffer full = segment;
+        full.force();
+        try {
+            segment = mapSegment(segmentIndex + 1, true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create journal segment " + (segmentIndex + 1), e);
+        }
+        segmentIndex++;
+        writePos = SEGMENT_HEADER_SIZE;
+    }
+
+    private void putString(String s) {
+        if (s == null) {
+            scratch.putShort((short) -1);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("Journal field too long");
+        scratch.putShort((short) bytes.length);
+        scratch.put(bytes);
+    }
+
+    private void putAmount(Money amount) {
+        scratch.putLong(amount.toPaise());
+    }
+
+    private void putTimestamp(LocalDateTime ts) {
+        scratch.putLong(ts.toEpochSecond(ZoneOffset.UTC));
+        scratch.putInt(ts.getNano());
+    }
+
+    // --- flushing ------------------------------------------------------------------------
+
+    private void flushLoop() {
+        MappedByteBuffer forcedSegment = null;
+        int forcedPos = 0;
+        while (true) {
+            syncLock.lock();
+            try {
+                long deadline = flushIntervalNanos;
+                while (!syncPending && !closed && deadline > 0) {
+                    deadline = flushRequested.awaitNanos(deadline);
+                }
+                syncPending = false;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                syncLock.unlock();
+            }
+
+            MappedByteBuffer current;
+            int upTo;
+            long target;
+            appendLock.lock();
+            try {
+                current = segment;
+                upTo = writePos;
+                target = writtenLsn;
+            } finally {
+                appendLock.unlock();
+            }
+
+            if (target > durableLsn) {
+                // segments that were rolled over have already been forced by the appender
+                int from = current == forcedSegment ? forcedPos : 0;
+                current.force(from, upTo - from);
+                forcedSegment = current;
+                forcedPos = upTo;
+                syncLock.lock();
+                try {
+                    durableLsn = target;
+                    durableAdvanced.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+            }
+            if (closed && target == getWrittenLsn()) {
+                syncLock.lock();
+                try {
+                    durableAdvanced.signalAll();
+                } finally {
+                    syncLock.unlock();
+                }
+                return;
+            }
+        }
+    }
+
+    // --- recovery ------------------------------------------------------------------------
+
+    private void recover(long fromLsn, JournalReplayHandler handler) throws IOException {
+        List<Long> indexes = listSegments();
+        if (fromLsn > 0 && (indexes.isEmpty() || indexes.get(0) * segmentSize >= fromLsn)) {
+            throw new IllegalStateException("Journal segments after LSN " + fromLsn + " are missing in " + directory);
+        }
+        if (indexes.isEmpty()) {
+            segmentIndex = 0;
+            segment = mapSegment(0, true);
+            writePos = SEGMENT_HEADER_SIZE;
+        } else {
+            for (int i = 0; i < indexes.size(); i++) {
+                long index = indexes.get(i);
+                if (i < indexes.size() - 1 && (index + 1) * segmentSize <= fromLsn) continue;
+                MappedByteBuffer buf = mapSegment(index, false);
+                int end = replaySegment(index, buf, fromLsn, Long.MAX_VALUE, handler);
+                if (i < indexes.size() - 1 && end + FRAME_HEADER_SIZE <= segmentSize && buf.getInt(end) != 0) {
+                    throw new IllegalStateException("Corrupt journal record at LSN " + (index * segmentSize + end)
+                            + " in " + segmentPath(index) + ", which is followed by later segments");
+                }
+                if (i < indexes.size() - 1 && indexes.get(i + 1) != index + 1) {
+                    throw new IllegalStateException("Journal segment " + (index + 1) + " is missing in " + directory);
+                }
+                if (i == indexes.size() - 1) {
+                    segmentIndex = index;
+                    segment = buf;
+                    writePos = end;
+                    clearTail(buf, end);
+                }
+            }
+        }
+        writtenLsn = segmentIndex * segmentSize + writePos;
+        durableLsn = writtenLsn;
+    }
+
+    // Dispatches the intact frames whose end LSN lies in (fromLsn, toLsn]; returns where the intact part ends.
+    private int replaySegment(long index, MappedByteBuffer buf, long fromLsn, long toLsn, JournalReplayHandler handler) {
+        if (buf.getInt(0) != SEGMENT_MAGIC || buf.getLong(4) != index) {
+            throw new IllegalStateException("Corrupt journal segment header: " + segmentPath(index));
+        }
+        CRC32C check = new CRC32C();
+        long base = index * segmentSize;
+        int pos = SEGMENT_HEADER_SIZE;
+        while (pos + FRAME_HEADER_SIZE <= segmentSize) {
+            int length = buf.getInt(pos);
+            if (length <= 0 || length > MAX_PAYLOAD_SIZE || pos + FRAME_HEADER_SIZE + length > segmentSize) break;
+            int end = pos + FRAME_HEADER_SIZE + length;
+            if (base + end > toLsn) break;
+            if (base + end > fromLsn) {
+                ByteBuffer payload = buf.slice(pos + FRAME_HEADER_SIZE, length);
+                check.reset();
+                check.update(payload.duplicate());
+                if ((int) check.getValue() != buf.getInt(pos + 4)) break;
+                dispatch(payload, handler);
+            }
+            pos = end;
+        }
+        return pos;
+    }
+
+    private void dispatch(ByteBuffer in, JournalReplayHandler handler) {
+        byte kind = in.get();
+        switch (kind) {
+            case KIND_CUSTOMER: {
+                String id = getString(in);
+                String name = getString(in);
+                String email = getString(in);
+                String phone = getString(in);
+                long dob = in.getLong();
+                handler.onCustomer(new Customer(id, name, email, phone, dob == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(dob)));
+                break;
+            }
+            case KIND_ACCOUNT_OPENED: {
+                String accountNo = getString(in);
+                String customerId = getString(in);
+                AccountType type = ACCOUNT_TYPES[in.get()];
+                handler.onAccountOpened(accountNo, customerId, type, getTimestamp(in));
+                break;
+            }
+            case KIND_TRANSACTION:
+                handler.onTransaction(getTransaction(in));
+                break;
+            case KIND_TRANSACTIONS: {
+                int count = in.getInt();
+                for (int i = 0; i < count; i++) handler.onTransaction(getTransaction(in));
+                break;
+            }
+            default:
+                throw new IllegalStateException("Unknown journal record kind: " + kind);
+        }
+    }
+
+    // Zeroes out whatever a torn write may have left behind the last intact record.
+    private void clearTail(MappedByteBuffer buf, int from) {
+        if (from + 4 > segmentSize || buf.getInt(from) == 0) return;
+        for (int i = from; i < segmentSize; i++) {
+            buf.put(i, (byte) 0);
+        }
+        buf.force();
+    }
+
+    private static Transaction getTransaction(ByteBuffer in) {
+        long id = in.getLong();
+        String accountNo = getString(in);
+        TransactionType type = TRANSACTION_TYPES[in.get()];
+        Money amount = Money.ofPaise(in.getLong());
+        LocalDateTime ts = getTimestamp(in);
+        return new Transaction(id, accountNo, type, amount, ts, getString(in));
+    }
+
+    private static String getString(ByteBuffer in) {
+        short length = in.getShort();
+        if (length < 0) return null;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static LocalDateTime getTimestamp(ByteBuffer in) {
+        long seconds = in.getLong();
+        int nanos = in.getInt();
+        return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    }
+
+    // --- segment files -------------------------------------------------------------------
+
+    private List<Long> listSegments() throws IOException {
+        List<Long> indexes = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(p -> p.getFileName().toString())
+                    .filter(n -> n.startsWith(SEGMENT_PREFIX) && n.endsWith(SEGMENT_SUFFIX))
+                    .map(n -> Long.parseLong(n.substring(SEGMENT_PREFIX.length(), n.length() - SEGMENT_SUFFIX.length())))
+                    .sorted()
+                    .forEach(indexes::add);
+        }
+        return indexes;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, index, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer mapSegment(long index, boolean create) throws IOException {
+        Path path = segmentPath(index);
+        try (FileChannel ch = create
+                ? FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)
+                : FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (!create && ch.size() != segmentSize) {
+                throw new IllegalStateException("Journal segment " + path + " has size " + ch.size() + ", expected " + segmentSize);
+            }
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+            if (create) {
+                buf.putInt(0, SEGMENT_MAGIC);
+                buf.putLong(4, index);
+                buf.force(0, SEGMENT_HEADER_SIZE);
+            }
+            return buf;
+        }
+    }
+}
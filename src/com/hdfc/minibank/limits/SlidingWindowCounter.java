@@ -0,0 +1,96 @@
+package com.hdfc.minibank.limits;
+
+import java.util.Arrays;
+
+/**
+ * Count and sum of events over a sliding time window, kept in a ring of fixed-width buckets in
+ * one long array, each bucket's count next to its sum so that both sit in one cache line. The
+ * running totals are corrected as buckets fall out of the window, so every call is O(1)
+ * amortised and nothing is allocated after construction.
+ *
+ * The window covers the current bucket plus the buckets - 1 before it, so an event is forgotten
+ * between (buckets - 1) and buckets bucket widths after it happened. Not thread-safe: callers
+ * hold a lock (see VelocityLimiter).
+ */
+public final class SlidingWindowCounter {
+
+    private final long bucketMillis;
+    private final int buckets;
+    private final long[] slots; // count of bucket i at 2i, sum at 2i + 1
+    private long newestBucket;
+    private int newestIndex;
+    private long newestStart; // first millisecond of the newest bucket
+    private long nextStart;   // and of the one after it; calls before it need no division
+    private long count;
+    private long sum;
+
+    public SlidingWindowCounter(long windowMillis, int buckets) {
+        if (buckets < 1 || windowMillis < buckets) {
+            throw new IllegalArgumentException("Window of " + windowMillis + " ms cannot have " + buckets + " buckets");
+        }
+        this.bucketMillis = windowMillis / buckets;
+        this.buckets = buckets;
+        this.slots = new long[2 * buckets];
+    }
+
+    public long count(long nowMillis) {
+        advance(nowMillis);
+        return count;
+    }
+
+    public long sum(long nowMillis) {
+        advance(nowMillis);
+        return sum;
+    }
+
+    public void add(long nowMillis, long amount) {
+        advance(nowMillis);
+        int i = newestIndex;
+        slots[i]++;
+        slots[i + 1] += amount;
+        count++;
+        sum += amount;
+    }
+
+    // Takes back an add made at atMillis, if its bucket is still in the window.
+    public void remove(long atMillis, long amount) {
+        int i;
+        if (atMillis >= newestStart && atMillis < nextStart) {
+            i = newestIndex;
+        } else {
+            long bucket = atMillis / bucketMillis;
+            if (bucket > newestBucket || newestBucket - bucket >= buckets) return;
+            i = index(bucket);
+        }
+        slots[i]--;
+        slots[i + 1] -= amount;
+        count--;
+        sum -= amount;
+    }
+
+    private void advance(long nowMillis) {
+        if (nowMillis < nextStart) return; // same bucket, or the clock stepped back
+        long bucket = nowMillis / bucketMillis;
+        if (bucket - newestBucket >= buckets) {
+            Arrays.fill(slots, 0);
+            count = 0;
+            sum = 0;
+        } else {
+            for (long b = newestBucket + 1; b <= bucket; b++) {
+                int i = index(b);
+                count -= slots[i];
+                sum -= slots[i + 1];
+                slots[i] = 0;
+                slots[i + 1] = 0;
+            }
+        }
+        newestBucket = bucket;
+        newestIndex = index(bucket);
+        newestStart = bucket * bucketMillis;
+        nextStart = newestStart + bucketMillis;
+    }
+
+    private int index(long bucket) {
+        return 2 * (int) (bucket % buckets);
+    }
+}
@@ -0,0 +1,119 @@
+package com.hdfc.minibank.limits;
+
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.limits.VelocityPolicy.Flow;
+import com.hdfc.minibank.limits.VelocityPolicy.Rule;
+import com.hdfc.minibank.limits.VelocityPolicy.Scope;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Enforces a {@link VelocityPolicy} on withdrawals and outgoing transfers as they happen.
+ *
+ * Every account and every customer has a tracker holding one {@link SlidingWindowCounter} per
+ * rule of its scope, made when the flow is first used. acquire checks all the rules that apply and, only if none would be broken,
+ * counts the movement in all of them, under the account's tracker and then the customer's
+ * (always in that order, so two callers cannot deadlock). A check is a handful of array reads;
+ * nothing is allocated unless the movement is refused.
+ *
+ * A movement counted by acquire that then fails (for example for want of balance) is taken
+ * back with release, passing the time acquire returned.
+ */
+public final class VelocityLimiter {
+
+    private final VelocityPolicy policy;
+    private final ConcurrentMap<String, Tracker> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Tracker> customers = new ConcurrentHashMap<>();
+
+    public VelocityLimiter(VelocityPolicy policy) {
+        this.policy = policy;
+    }
+
+    public VelocityPolicy getPolicy() { return policy; }
+
+    // Counts paise leaving accountNo (owned by customerId) at nowMillis, or throws if that would
+    // break a rule. Returns the time the movement was counted at, for release.
+    public long acquire(String accountNo, String customerId, Flow flow, long paise, long nowMillis) throws VelocityLimitExceededException {
+        if (policy.getRules().isEmpty()) return nowMillis;
+        Tracker account = tracker(accounts, accountNo, Scope.ACCOUNT);
+        Tracker customer = tracker(customers, customerId, Scope.CUSTOMER);
+        synchronized (account) {
+            synchronized (customer) {
+                // each counter only ever sees time move forward, so release finds the right bucket
+                long now = Math.max(nowMillis, Math.max(account.lastMillis, customer.lastMillis));
+                account.lastMillis = now;
+                customer.lastMillis = now;
+                String broken = account.check(flow, paise, now, accountNo);
+                if (broken == null) broken = customer.check(flow, paise, now, customerId);
+                if (broken != null) throw new VelocityLimitExceededException(broken);
+                account.add(flow, paise, now);
+                customer.add(flow, paise, now);
+                return now;
+            }
+        }
+    }
+
+    // Takes back a movement counted by acquire at atMillis.
+    public void release(String accountNo, String customerId, Flow flow, long paise, long atMillis) {
+        if (policy.getRules().isEmpty()) return;
+        Tracker account = accounts.get(accountNo);
+        Tracker customer = customers.get(customerId);
+        if (account == null || customer == null) return;
+        synchronized (account) {
+            synchronized (customer) {
+                account.remove(flow, paise, atMillis);
+                customer.remove(flow, paise, atMillis);
+            }
+        }
+    }
+
+    // get first: computeIfAbsent locks the hash bin whenever the key is not at its head
+    private Tracker tracker(ConcurrentMap<String, Tracker> trackers, String key, Scope scope) {
+        Tracker t = trackers.get(key);
+        return t != null ? t : trackers.computeIfAbsent(key, k -> new Tracker(scope));
+    }
+
+    private final class Tracker {
+        private final Scope scope;
+        private final Rule[] rules;
+        private final SlidingWindowCounter[] counters;
+        private long lastMillis;
+
+        private Tracker(Scope scope) {
+            this.scope = scope;
+            List<Rule> own = new ArrayList<>();
+            for (Rule r : policy.getRules()) {
+                if (r.getScope() == scope) own.add(r);
+            }
+            this.rules = own.toArray(new Rule[0]);
+            this.counters = new SlidingWindowCounter[rules.length]; // made on first use of each flow
+        }
+
+        // Returns why the movement would break a rule of owner (an account or customer id), or null.
+        private String check(Flow flow, long paise, long now, String owner) {
+            for (int i = 0; i < rules.length; i++) {
+                Rule r = rules[i];
+                if (r.getFlow() != flow) continue;
+                if (counters[i] == null) counters[i] = r.newCounter();
+                if (r.getMaxCount() > 0 && counters[i].count(now) >= r.getMaxCount()) return r.countMessage(scope, owner);
+                if (r.getMaxPaise() > 0 && counters[i].sum(now) + paise > r.getMaxPaise()) return r.amountMessage(scope, owner);
+            }
+            return null;
+        }
+
+        private void add(Flow flow, long paise, long now) {
+            for (int i = 0; i < rules.length; i++) {
+                if (rules[i].getFlow() == flow) counters[i].add(now, paise);
+            }
+        }
+
+        private void remove(Flow flow, long paise, long at) {
+            for (int i = 0; i < rules.length; i++) {
+                if (rules[i].getFlow() == flow && counters[i] != null) counters[i].remove(at, paise);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.hdfc.minibank.limits;
+
+import com.hdfc.minibank.domain.Money;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The velocity limits a bank enforces on money leaving an account, per account and per
+ * customer (over all of the customer's accounts). Choose with -Dminibank.limits=standard|off;
+ * limits are off unless configured. They apply to customer withdrawals and transfers, not to
+ * batch settlement runs (see BatchTransferEngine).
+ */
+public final class VelocityPolicy {
+
+    public enum Scope { ACCOUNT, CUSTOMER }
+
+    public enum Flow {
+        WITHDRAWAL("withdrawals", "withdrawn"),
+        TRANSFER("outgoing transfers", "transferred out");
+
+        private final String plural;
+        private final String verb;
+
+        Flow(String plural, String verb) {
+            this.plural = plural;
+            this.verb = verb;
+        }
+    }
+
+    public static final class Rule {
+        private final Scope scope;
+        private final Flow flow;
+        private final String window;
+        private final long windowMillis;
+        private final int buckets;
+        private final long maxCount;
+        private final long maxPaise;
+
+        // maxCount or maxAmount of 0 / null means no limit on that measure.
+        public Rule(Scope scope, Flow flow, String window, long windowMillis, int buckets, long maxCount, Money maxAmount) {
+            this.scope = scope;
+            this.flow = flow;
+            this.window = window;
+            this.windowMillis = windowMillis;
+            this.buckets = buckets;
+            this.maxCount = maxCount;
+            this.maxPaise = maxAmount == null ? 0 : maxAmount.toPaise();
+        }
+
+        public Scope getScope() { return scope; }
+        public Flow getFlow() { return flow; }
+        public long getMaxCount() { return maxCount; }
+        public long getMaxPaise() { return maxPaise; }
+
+        SlidingWindowCounter newCounter() {
+            return new SlidingWindowCounter(windowMillis, buckets);
+        }
+
+        String countMessage(Scope scope, String owner) {
+            return "Velocity limit exceeded: at most " + maxCount + " " + flow.plural + " per " + window + " for " + describe(scope, owner);
+        }
+
+        String amountMessage(Scope scope, String owner) {
+            return "Velocity limit exceeded: at most " + Money.ofPaise(maxPaise) + " " + flow.verb + " per " + window + " for " + describe(scope, owner);
+        }
+
+        private static String describe(Scope scope, String owner) {
+            return (scope == Scope.ACCOUNT ? "account " : "customer ") + owner;
+        }
+    }
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+    private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final List<Rule> rules;
+
+    public VelocityPolicy(List<Rule> rules) {
+        this.rules = Collections.unmodifiableList(new ArrayList<>(rules));
+    }
+
+    public List<Rule> getRules() { return rules; }
+
+    public static VelocityPolicy none() {
+        return new VelocityPolicy(Collections.emptyList());
+    }
+
+    // Minute windows have 5 s buckets, hour windows 5 min buckets and day windows 1 h buckets, so
+    // a movement is forgotten at most one bucket early; a few hundred bytes per account.
+    public static VelocityPolicy standard() {
+        List<Rule> r = new ArrayList<>();
+        r.add(new Rule(Scope.ACCOUNT, Flow.WITHDRAWAL, "minute", MINUTE, 12, 5, Money.ofRupees(50_000)));
+        r.add(new Rule(Scope.ACCOUNT, Flow.WITHDRAWAL, "hour", HOUR, 12, 20, Money.ofRupees(200_000)));
+        r.add(new Rule(Scope.ACCOUNT, Flow.WITHDRAWAL, "day", DAY, 24, 50, Money.ofRupees(500_000)));
+        r.add(new Rule(Scope.ACCOUNT, Flow.TRANSFER, "minute", MINUTE, 12, 20, null));
+        r.add(new Rule(Scope.ACCOUNT, Flow.TRANSFER, "hour", HOUR, 12, 200, Money.ofRupees(1_000_000)));
+        r.add(new Rule(Scope.ACCOUNT, Flow.TRANSFER, "day", DAY, 24, 1_000, Money.ofRupees(2_000_000)));
+        r.add(new Rule(Scope.CUSTOMER, Flow.WITHDRAWAL, "day", DAY, 24, 100, Money.ofRupees(1_000_000)));
+        r.add(new Rule(Scope.CUSTOMER, Flow.TRANSFER, "hour", HOUR, 12, 500, null));
+        r.add(new Rule(Scope.CUSTOMER, Flow.TRANSFER, "day", DAY, 24, 0, Money.ofRupees(5_000_000)));
+        return new VelocityPolicy(r);
+    }
+
+    public static VelocityPolicy fromSystemProperties() {
+        String name = System.getProperty("minibank.limits", "off");
+        switch (name) {
+            case "standard": return standard();
+            case "off": return none();
+            default: throw new IllegalArgumentException("Unknown minibank.limits policy: " + name);
+        }
+    }
+}
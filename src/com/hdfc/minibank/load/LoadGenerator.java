@@ -0,0 +1,308 @@
+package com.hdfc.minibank.load;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.limits.VelocityPolicy;
+import com.hdfc.minibank.metrics.LatencyHistogram;
+import com.hdfc.minibank.service.BankService;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives a bank with a mix of deposits, withdrawals and transfers from a pool of workers, then
+ * checks that the books still balance. Started from Main:
+ *
+ *   java -cp target/classes com.hdfc.minibank.Main --load --customers=1000 --seconds=600
+ *
+ * Every synthetic customer gets a savings and a current account. Each operation picks its
+ * account, and a transfer its destination, from a Zipfian distribution over all accounts, so a
+ * few hot accounts take most of the traffic. The workload follows from --seed: the accounts,
+ * their opening balances and the hot ranks come from it, and worker w draws its operations
+ * from its own generator derived from it. With --ops every run issues the same operations;
+ * only their interleaving, and so which withdrawals still find enough balance, is up to the
+ * scheduler.
+ *
+ * At the end the run checks that money was conserved (the balances add up to the opening
+ * balances plus accepted deposits minus accepted withdrawals), that no account is below its
+ * minimum balance, that every account's history adds up to its balance and that the customer
+ * aggregates add up to the same total.
+ *
+ * Options: --customers=1000 --ops=0 (in total; 0 runs for --seconds) --seconds=30
+ * --mix=40:30:30 (deposit:withdraw:transfer) --skew=0.99 --seed=42 --report=10 (seconds
+ * between progress lines, 0 for none) --journal=DIR (journal to DIR instead of memory)
+ * --limits (enforce the standard velocity limits)
+ */
+public final class LoadGenerator {
+
+    private static final Money MIN_OPENING = Money.ofRupees(10_000);
+    private static final int OPENING_SPREAD_RUPEES = 90_000;
+    private static final int MIN_AMOUNT_RUPEES = 100;
+    private static final int AMOUNT_SPREAD_RUPEES = 4_900;
+
+    private enum Op { DEPOSIT, WITHDRAW, TRANSFER }
+
+    public static final class Options {
+        private int customers = 1000;
+        private long ops;
+        private long seconds = 30;
+        private final int[] mix = {40, 30, 30};
+        private double skew = 0.99;
+        private long seed = 42;
+        private long reportSeconds = 10;
+        private Path journalDir;
+        private boolean limits;
+
+        public static Options parse(List<String> args) {
+            Options o = new Options();
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--customers=")) o.customers = Integer.parseInt(value);
+                else if (arg.startsWith("--ops=")) o.ops = Long.parseLong(value);
+                else if (arg.startsWith("--seconds=")) o.seconds = Long.parseLong(value);
+                else if (arg.startsWith("--mix=")) o.parseMix(value);
+                else if (arg.startsWith("--skew=")) o.skew = Double.parseDouble(value);
+                else if (arg.startsWith("--seed=")) o.seed = Long.parseLong(value);
+                else if (arg.startsWith("--report=")) o.reportSeconds = Long.parseLong(value);
+                else if (arg.startsWith("--journal=")) o.journalDir = Paths.get(value);
+                else if (arg.equals("--limits")) o.limits = true;
+                else throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            if (o.customers < 1) throw new IllegalArgumentException("Need at least one customer");
+            if (o.ops <= 0 && o.seconds <= 0) throw new IllegalArgumentException("Give --ops or --seconds");
+            return o;
+        }
+
+        private void parseMix(String value) {
+            String[] parts = value.split(":");
+            if (parts.length != mix.length) throw new IllegalArgumentException("Mix must be deposit:withdraw:transfer, got " + value);
+            int total = 0;
+            for (int i = 0; i < mix.length; i++) {
+                mix[i] = Integer.parseInt(parts[i].trim());
+                if (mix[i] < 0) throw new IllegalArgumentException("Negative weight in mix: " + value);
+                total += mix[i];
+            }
+            if (total == 0) throw new IllegalArgumentException("Mix has no operations: " + value);
+        }
+
+        public Path getJournalDir() { return journalDir; }
+
+        public VelocityPolicy getLimits() {
+            return limits ? VelocityPolicy.standard() : VelocityPolicy.none();
+        }
+    }
+
+    private final BankService bank;
+    private final ExecutorService executor;
+    private final int workers;
+    private final Options options;
+    private final List<Account> accounts = new ArrayList<>();
+    private final Set<String> customerIds = new LinkedHashSet<>();
+    private Account[] byRank;
+    private ZipfianGenerator ranks;
+    private long openingPaise;
+
+    private final LatencyHistogram[] latency = new LatencyHistogram[Op.values().length];
+    private final LatencyHistogram allLatency = new LatencyHistogram();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder depositedPaise = new LongAdder();
+    private final LongAdder withdrawnPaise = new LongAdder();
+    private final LongAdder insufficientBalance = new LongAdder();
+    private final LongAdder velocityLimited = new LongAdder();
+
+    // Runs on executor, which must have at least workers threads to spare.
+    public LoadGenerator(BankService bank, ExecutorService executor, int workers, Options options) {
+        this.bank = bank;
+        this.executor = executor;
+        this.workers = workers;
+        this.options = options;
+        for (int i = 0; i < latency.length; i++) latency[i] = new LatencyHistogram();
+    }
+
+    // Sets up the accounts, runs the load and checks the invariants; true when they all held.
+    public boolean run(PrintStream out) throws InterruptedException {
+        setUp();
+        out.println(String.format(Locale.ROOT, "Load: %d customers, %d accounts, %d workers, mix %d:%d:%d, skew %.2f, seed %d, %s",
+                customerIds.size(), accounts.size(), workers, options.mix[0], options.mix[1], options.mix[2], options.skew,
+                options.seed, options.ops > 0 ? options.ops + " operations" : options.seconds + "s"));
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.SECONDS.toNanos(options.seconds);
+        List<Future<?>> futures = new ArrayList<>(workers);
+        for (int w = 0; w < workers; w++) {
+            long share = options.ops > 0 ? options.ops / workers + (w < options.ops % workers ? 1 : 0) : -1;
+            int worker = w;
+            futures.add(executor.submit(() -> work(worker, share, deadline)));
+        }
+        awaitWithProgress(futures, start, out);
+        double seconds = (System.nanoTime() - start) / 1e9;
+        for (Future<?> f : futures) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                out.println("FAILED: a worker stopped on " + e.getCause());
+                return false;
+            }
+        }
+
+        long ops = completed.sum();
+        out.println(String.format(Locale.ROOT, "Completed %d operations in %.1fs: %.0f ops/s", ops, seconds, ops / seconds));
+        out.println("  refused: insufficient balance " + insufficientBalance.sum() + ", velocity limit " + velocityLimited.sum());
+        out.println(String.format(Locale.ROOT, "  %-10s %10s %10s %10s %10s %10s", "latency", "count", "p50 us", "p99 us", "p99.9 us", "max us"));
+        for (Op op : Op.values()) printLatency(out, op.name().toLowerCase(Locale.ROOT), latency[op.ordinal()].snapshot());
+        printLatency(out, "all", allLatency.snapshot());
+        return checkInvariants(out);
+    }
+
+    private void setUp() {
+        SplittableRandom random = new SplittableRandom(options.seed);
+        for (int c = 0; c < options.customers; c++) {
+            String id = bank.autoCreateCustomerIfNeeded();
+            customerIds.add(id);
+            for (AccountType type : AccountType.values()) {
+                Money opening = MIN_OPENING.plus(Money.ofRupees(random.nextInt(OPENING_SPREAD_RUPEES + 1)));
+                Account acc = bank.autoCreateAccountIfNeeded(id, type, opening);
+                accounts.add(acc);
+                openingPaise += acc.getBalancePaise();
+            }
+        }
+        // which accounts are hot is part of the seeded workload too
+        byRank = accounts.toArray(new Account[0]);
+        for (int i = byRank.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Account t = byRank[i];
+            byRank[i] = byRank[j];
+            byRank[j] = t;
+        }
+        ranks = new ZipfianGenerator(byRank.length, options.skew);
+    }
+
+    // Issues share operations, or runs until deadline when share is -1.
+    private Void work(int worker, long share, long deadline) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(options.seed ^ (0x9E3779B97F4A7C15L * (worker + 1)));
+        int total = options.mix[0] + options.mix[1] + options.mix[2];
+        for (long i = 0; share >= 0 ? i < share : System.nanoTime() < deadline; i++) {
+            if (Thread.interrupted()) throw new InterruptedException();
+            int pick = random.nextInt(total);
+            Op op = pick < options.mix[0] ? Op.DEPOSIT : pick < options.mix[0] + options.mix[1] ? Op.WITHDRAW : Op.TRANSFER;
+            int rank = (int) ranks.next(random);
+            Account acc = byRank[rank];
+            Money amount = Money.ofRupees(MIN_AMOUNT_RUPEES + random.nextInt(AMOUNT_SPREAD_RUPEES + 1));
+            Account to = null;
+            if (op == Op.TRANSFER) {
+                int other = (int) ranks.next(random);
+                to = byRank[other != rank ? other : (rank + 1) % byRank.length];
+            }
+
+            long start = System.nanoTime();
+            try {
+                switch (op) {
+                    case DEPOSIT:
+                        bank.deposit(acc, amount);
+                        depositedPaise.add(amount.toPaise());
+                        break;
+                    case WITHDRAW:
+                        bank.withdraw(acc, amount);
+                        withdrawnPaise.add(amount.toPaise());
+                        break;
+                    default:
+                        bank.transfer(acc, to, amount);
+                }
+            } catch (InsufficientBalanceException e) {
+                insufficientBalance.increment();
+            } catch (VelocityLimitExceededException e) {
+                velocityLimited.increment();
+            }
+            long nanos = System.nanoTime() - start;
+            latency[op.ordinal()].record(nanos);
+            allLatency.record(nanos);
+            completed.increment();
+        }
+        return null;
+    }
+
+    private void awaitWithProgress(List<Future<?>> futures, long start, PrintStream out) throws InterruptedException {
+        long reportNanos = TimeUnit.SECONDS.toNanos(options.reportSeconds);
+        long nextReport = start + reportNanos;
+        long lastOps = 0;
+        long lastTime = start;
+        while (!allDone(futures)) {
+            Thread.sleep(100);
+            long now = System.nanoTime();
+            if (reportNanos > 0 && now >= nextReport) {
+                long ops = completed.sum();
+                out.println(String.format(Locale.ROOT, "[%6.0fs] %12d ops %10.0f ops/s", (now - start) / 1e9, ops,
+                        (ops - lastOps) * 1e9 / (now - lastTime)));
+                lastOps = ops;
+                lastTime = now;
+                nextReport += reportNanos;
+            }
+        }
+    }
+
+    private static boolean allDone(List<Future<?>> futures) {
+        for (Future<?> f : futures) {
+            if (!f.isDone()) return false;
+        }
+        return true;
+    }
+
+    private boolean checkInvariants(PrintStream out) {
+        long total = 0;
+        int belowMinimum = 0;
+        int historyMismatches = 0;
+        for (Account acc : accounts) {
+            long balance = acc.getBalancePaise();
+            total += balance;
+            if (balance < acc.getMinimumBalance().toPaise()) belowMinimum++;
+            long fromHistory = 0;
+            for (Transaction t : bank.getTransactions().findByAccount(acc.getAccountNo())) {
+                fromHistory += balanceEffect(t);
+            }
+            if (fromHistory != balance) historyMismatches++;
+        }
+        long expected = openingPaise + depositedPaise.sum() - withdrawnPaise.sum();
+        long aggregated = 0;
+        for (String id : customerIds) aggregated += bank.getCustomerAggregate(id).getTotalBalancePaise();
+
+        out.println("Invariants:");
+        boolean ok = check(out, "money conserved", total == expected,
+                "total " + Money.ofPaise(total) + (total == expected ? "" : ", expected " + Money.ofPaise(expected)));
+        ok &= check(out, "minimum balances", belowMinimum == 0, belowMinimum + " accounts below their minimum");
+        ok &= check(out, "history matches balance", historyMismatches == 0, historyMismatches + " accounts differ");
+        ok &= check(out, "customer totals", aggregated == total, "aggregates add up to " + Money.ofPaise(aggregated));
+        return ok;
+    }
+
+    private static boolean check(PrintStream out, String name, boolean ok, String detail) {
+        out.println(String.format(Locale.ROOT, "  %-24s %-6s %s", name, ok ? "OK" : "FAILED", detail));
+        return ok;
+    }
+
+    private static long balanceEffect(Transaction t) {
+        long paise = t.getAmount().toPaise();
+        return t.getType() == TransactionType.WITHDRAWAL || t.getType() == TransactionType.TRANSFER_OUT ? -paise : paise;
+    }
+
+    private static void printLatency(PrintStream out, String name, LatencyHistogram.Snapshot s) {
+        out.println(String.format(Locale.ROOT, "  %-10s %10d %10.1f %10.1f %10.1f %10.1f", name, s.getCount(),
+                s.percentile(50) / 1e3, s.percentile(99) / 1e3, s.percentile(99.9) / 1e3, s.getMax() / 1e3));
+    }
+}
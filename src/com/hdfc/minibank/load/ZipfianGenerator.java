@@ -0,0 +1,48 @@
+package com.hdfc.minibank.load;
+
+import java.util.SplittableRandom;
+
+/**
+ * Draws ranks 0..n-1 with probability proportional to 1 / (rank + 1)^theta, so that a few
+ * ranks get most of the draws. Uses the method of Gray et al., "Quickly Generating
+ * Billion-Record Synthetic Databases" (as in YCSB): O(n) set-up, then O(1) per draw.
+ * Thread-safe as long as each thread passes its own random source.
+ */
+public final class ZipfianGenerator {
+
+    private final long n;
+    private final double theta;
+    private final double zetan;
+    private final double alpha;
+    private final double eta;
+    private final double secondRankCut;
+
+    // theta in (0, 1); 0.99 is the usual "skewed" workload.
+    public ZipfianGenerator(long n, double theta) {
+        if (n < 2) throw new IllegalArgumentException("Need at least 2 items, got " + n);
+        if (!(theta > 0 && theta < 1)) throw new IllegalArgumentException("Zipfian skew must be in (0, 1), got " + theta);
+        this.n = n;
+        this.theta = theta;
+        double zeta2 = zeta(2, theta);
+        this.zetan = zeta(n, theta);
+        this.alpha = 1.0 / (1.0 - theta);
+        this.eta = (1 - Math.pow(2.0 / n, 1 - theta)) / (1 - zeta2 / zetan);
+        this.secondRankCut = 1 + Math.pow(0.5, theta);
+    }
+
+    public long next(SplittableRandom random) {
+        double u = random.nextDouble();
+        double uz = u * zetan;
+        if (uz < 1) return 0;
+        if (uz < secondRankCut) return 1;
+        return Math.min(n - 1, (long) (n * Math.pow(eta * u - eta + 1, alpha)));
+    }
+
+    public double getTheta() { return theta; }
+
+    private static double zeta(long n, double theta) {
+        double sum = 0;
+        for (long i = 1; i <= n; i++) sum += 1 / Math.pow(i, theta);
+        return sum;
+    }
+}
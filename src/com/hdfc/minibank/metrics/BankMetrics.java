@@ -0,0 +1,217 @@
+package com.hdfc.minibank.metrics;
+
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and latency histograms for every banking operation and every posted transaction
+ * type, plus lock-wait time inside transfers. Recording only touches LongAdders and
+ * {@link LatencyHistogram}s, so it is cheap enough to leave on in production.
+ */
+public class BankMetrics implements BankMetricsMXBean {
+
+    public static final String OBJECT_NAME = "com.hdfc.minibank:type=BankMetrics";
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final TransactionType[] TRANSACTION_TYPES = TransactionType.values();
+
+    private final LatencyHistogram[] opLatency = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder[] opErrors = new LongAdder[OPERATIONS.length];
+    private final LatencyHistogram[] postLatency = new LatencyHistogram[TRANSACTION_TYPES.length];
+    private final LongAdder[] postedPaise = new LongAdder[TRANSACTION_TYPES.length];
+    private final LatencyHistogram transferLockWait = new LatencyHistogram();
+    private final LongAdder insufficientBalance = new LongAdder();
+    private final LongAdder invalidAccount = new LongAdder();
+    private final LongAdder velocityLimit = new LongAdder();
+    private final LongAdder summaryCacheHits = new LongAdder();
+    private final LongAdder summaryCacheMisses = new LongAdder();
+    private final LongAdder summaryCacheEvictions = new LongAdder();
+    private final LongAdder ingestionBackpressure = new LongAdder();
+
+    private ScheduledExecutorService dumper;
+
+    public BankMetrics() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            opLatency[i] = new LatencyHistogram();
+            opErrors[i] = new LongAdder();
+        }
+        for (int i = 0; i < TRANSACTION_TYPES.length; i++) {
+            postLatency[i] = new LatencyHistogram();
+            postedPaise[i] = new LongAdder();
+        }
+    }
+
+    // startNanos is a System.nanoTime() taken when the operation began.
+    public void recordOperation(Operation op, long startNanos) {
+        opLatency[op.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public void recordFailure(Operation op, long startNanos) {
+        opLatency[op.ordinal()].record(System.nanoTime() - startNanos);
+        opErrors[op.ordinal()].increment();
+    }
+
+    public void recordPosted(TransactionType type, long paise, long startNanos) {
+        postLatency[type.ordinal()].record(System.nanoTime() - startNanos);
+        postedPaise[type.ordinal()].add(paise);
+    }
+
+    public void recordTransferLockWait(long nanos) {
+        transferLockWait.record(nanos);
+    }
+
+    public void insufficientBalance() {
+        insufficientBalance.increment();
+    }
+
+    public void invalidAccount() {
+        invalidAccount.increment();
+    }
+
+    public void velocityLimit() {
+        velocityLimit.increment();
+    }
+
+    public void summaryCacheHit() {
+        summaryCacheHits.increment();
+    }
+
+    public void summaryCacheMiss() {
+        summaryCacheMisses.increment();
+    }
+
+    public void summaryCacheEviction() {
+        summaryCacheEvictions.increment();
+    }
+
+    // A producer found its ingestion partition full and had to wait.
+    public void ingestionBackpressure() {
+        ingestionBackpressure.increment();
+    }
+
+    @Override
+    public Map<String, Long> getCounters() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (Operation op : OPERATIONS) {
+            m.put(key(op) + ".count", opLatency[op.ordinal()].snapshot().getCount());
+            m.put(key(op) + ".errors", opErrors[op.ordinal()].sum());
+        }
+        for (TransactionType t : TRANSACTION_TYPES) {
+            m.put("posted." + key(t) + ".count", postLatency[t.ordinal()].snapshot().getCount());
+            m.put("posted." + key(t) + ".paise", postedPaise[t.ordinal()].sum());
+        }
+        m.put("exceptions.insufficientBalance", insufficientBalance.sum());
+        m.put("exceptions.invalidAccount", invalidAccount.sum());
+        m.put("exceptions.velocityLimit", velocityLimit.sum());
+        m.put("summaryCache.hits", summaryCacheHits.sum());
+        m.put("summaryCache.misses", summaryCacheMisses.sum());
+        m.put("summaryCache.evictions", summaryCacheEvictions.sum());
+        m.put("ingestion.backpressureWaits", ingestionBackpressure.sum());
+        return m;
+    }
+
+    @Override
+    public Map<String, Long> getLatencies() {
+        Map<String, Long> m = new LinkedHashMap<>();
+        for (Operation op : OPERATIONS) {
+            putLatency(m, key(op), opLatency[op.ordinal()].snapshot());
+        }
+        putLatency(m, "transfer.lockWait", transferLockWait.snapshot());
+        for (TransactionType t : TRANSACTION_TYPES) {
+            putLatency(m, "posted." + key(t), postLatency[t.ordinal()].snapshot());
+        }
+        return m;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder sb = new StringBuilder("=== Bank metrics at ").append(LocalDateTime.now()).append(" ===\n");
+        sb.append(String.format(Locale.ROOT, "%-24s %10s %8s %10s %10s %10s %10s%n", "latency (us)", "count", "errors", "p50", "p99", "p99.9", "max"));
+        for (Operation op : OPERATIONS) {
+            appendRow(sb, key(op), opLatency[op.ordinal()].snapshot(), opErrors[op.ordinal()].sum());
+        }
+        appendRow(sb, "transfer.lockWait", transferLockWait.snapshot(), 0);
+        for (TransactionType t : TRANSACTION_TYPES) {
+            appendRow(sb, "posted." + key(t), postLatency[t.ordinal()].snapshot(), 0);
+        }
+        sb.append("exceptions: insufficientBalance=").append(insufficientBalance.sum())
+                .append(" invalidAccount=").append(invalidAccount.sum())
+                .append(" velocityLimit=").append(velocityLimit.sum()).append('\n');
+        long hits = summaryCacheHits.sum();
+        long misses = summaryCacheMisses.sum();
+        sb.append(String.format(Locale.ROOT, "summaryCache: hits=%d misses=%d evictions=%d hitRate=%.1f%%%n",
+                hits, misses, summaryCacheEvictions.sum(), hits + misses == 0 ? 0.0 : 100.0 * hits / (hits + misses)));
+        sb.append("ingestion: backpressureWaits=").append(ingestionBackpressure.sum()).append('\n');
+        return sb.toString();
+    }
+
+    public void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBean", e);
+        }
+    }
+
+    // Appends dump() to the file every intervalSeconds from a daemon thread; a failed write is reported and skipped.
+    public synchronized void startPeriodicDump(Path file, long intervalSeconds) {
+        if (dumper != null) return;
+        dumper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "metrics-dump");
+            t.setDaemon(true);
+            return t;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            try {
+                Files.write(file, dump().getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            } catch (IOException | RuntimeException e) {
+                // an exception would cancel every later dump, so report it and keep the schedule
+                System.err.println("Metrics dump failed: " + e);
+            }
+        }, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public synchronized void stop() {
+        if (dumper != null) {
+            dumper.shutdown();
+            dumper = null;
+        }
+    }
+
+    private static void putLatency(Map<String, Long> m, String name, LatencyHistogram.Snapshot s) {
+        m.put(name + ".p50", s.percentile(50));
+        m.put(name + ".p99", s.percentile(99));
+        m.put(name + ".p999", s.percentile(99.9));
+        m.put(name + ".max", s.getMax());
+    }
+
+    private static void appendRow(StringBuilder sb, String name, LatencyHistogram.Snapshot s, long errors) {
+        sb.append(String.format(Locale.ROOT, "%-24s %10d %8d %10.1f %10.1f %10.1f %10.1f%n", name, s.getCount(), errors,
+                s.percentile(50) / 1000.0, s.percentile(99) / 1000.0, s.percentile(99.9) / 1000.0, s.getMax() / 1000.0));
+    }
+
+    private static String key(Enum<?> e) {
+        String[] parts = e.name().toLowerCase(Locale.ROOT).split("_");
+        StringBuilder sb = new StringBuilder(parts[0]);
+        for (int i = 1; i < parts.length; i++) {
+            sb.append(Character.toUpperCase(parts[i].charAt(0))).append(parts[i].substring(1));
+        }
+        return sb.toString();
+    }
+}
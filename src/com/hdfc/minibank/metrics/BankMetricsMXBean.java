@@ -0,0 +1,13 @@
+package com.hdfc.minibank.metrics;
+
+import java.util.Map;
+
+public interface BankMetricsMXBean {
+    // Event counters, e.g. "deposit.count", "withdraw.errors", "exceptions.insufficientBalance".
+    Map<String, Long> getCounters();
+
+    // Latency statistics in nanoseconds, e.g. "transfer.p99", "transfer.lockWait.p999".
+    Map<String, Long> getLatencies();
+
+    String dump();
+}
@@ -0,0 +1,108 @@
+package com.hdfc.minibank.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free log-linear histogram in the style of HdrHistogram: every power of two is split
+ * into 32 linear sub-buckets, so any recorded value is reported within ~3% of its true value.
+ * Recording is a couple of shifts and one atomic increment, with no allocation.
+ *
+ * Like LongAdder, the counts are striped: each thread records into one of up to STRIPES arrays
+ * (picked by its identity hash and allocated on first use), each with its own maximum, and
+ * snapshot() sums them. Threads recording the same operation therefore rarely write the same
+ * cache line, and the maximum is only written when a stripe sees a new one.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int BUCKETS = SUB_COUNT + (63 - SUB_BITS) * SUB_COUNT;
+    private static final int MAX = BUCKETS; // slot of a stripe holding its maximum
+    private static final int STRIPES = Integer.highestOneBit(Math.min(64, 2 * Runtime.getRuntime().availableProcessors()));
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    public void record(long value) {
+        if (value < 0) value = 0;
+        AtomicLongArray stripe = stripe();
+        stripe.getAndIncrement(indexOf(value));
+        if (value > stripe.getPlain(MAX)) {
+            long m;
+            do {
+                m = stripe.get(MAX);
+            } while (value > m && !stripe.compareAndSet(MAX, m, value));
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        long max = 0;
+        for (int s = 0; s < STRIPES; s++) {
+            AtomicLongArray stripe = stripes.get(s);
+            if (stripe == null) continue;
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = stripe.get(i);
+                copy[i] += c;
+                total += c;
+            }
+            max = Math.max(max, stripe.get(MAX));
+        }
+        return new Snapshot(copy, total, max);
+    }
+
+    private AtomicLongArray stripe() {
+        int h = System.identityHashCode(Thread.currentThread());
+        int s = (h ^ (h >>> 16)) & (STRIPES - 1);
+        AtomicLongArray stripe = stripes.get(s);
+        if (stripe == null) {
+            stripes.compareAndSet(s, null, new AtomicLongArray(BUCKETS + 1));
+            stripe = stripes.get(s);
+        }
+        return stripe;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_COUNT) return (int) value;
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - SUB_BITS)) - SUB_COUNT;
+        return SUB_COUNT + (exp - SUB_BITS) * SUB_COUNT + sub;
+    }
+
+    // Highest value that falls into the bucket.
+    static long upperBound(int index) {
+        if (index < SUB_COUNT) return index;
+        int exp = (index - SUB_COUNT) / SUB_COUNT + SUB_BITS;
+        int sub = (index - SUB_COUNT) % SUB_COUNT;
+        int shift = exp - SUB_BITS;
+        return (((long) SUB_COUNT + sub) << shift) + (1L << shift) - 1;
+    }
+
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long max;
+
+        Snapshot(long[] counts, long count, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.max = max;
+        }
+
+        public long getCount() { return count; }
+        public long getMax() { return max; }
+
+        // Value at the given percentile (0-100), rounded up to its bucket; 0 when empty.
+        public long percentile(double p) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * p / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+    }
+}
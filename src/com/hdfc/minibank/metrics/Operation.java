@@ -0,0 +1,15 @@
+package com.hdfc.minibank.metrics;
+
+public enum Operation {
+    REGISTER_CUSTOMER,
+    OPEN_ACCOUNT,
+    DEPOSIT,
+    WITHDRAW,
+    TRANSFER,
+    BATCH_TRANSFER,
+    HISTORY,
+    EXPORT_STATEMENT,
+    BULK_ONBOARD,
+    TRANSFER_STEP,
+    INGEST_BATCH
+}
@@ -0,0 +1,104 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.Transaction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rows of a single account in the {@link ColumnarTransactionStore}, ordered by timestamp and
+ * then transaction ID. Only the row numbers are kept here (4 bytes per transaction); range
+ * lookups binary search the store's timestamp and ID columns. Pages and cursors resume after
+ * the (timestamp, ID) of the last row they returned rather than at an index, as a late append
+ * shifts the rows after it.
+ */
+final class AccountHistory {
+
+    private final ColumnarTransactionStore store;
+    private int[] rows = new int[8];
+    private int size;
+
+    AccountHistory(ColumnarTransactionStore store) {
+        this.store = store;
+    }
+
+    synchronized void append(int row) {
+        if (size == rows.length) {
+            rows = Arrays.copyOf(rows, size * 2);
+        }
+        long time = store.timestampMillis(row);
+        long id = store.id(row);
+        // Writers racing on the same account may arrive slightly out of order; shift them into place.
+        int pos = size;
+        while (pos > 0 && compare(rows[pos - 1], time, id) > 0) {
+            rows[pos] = rows[pos - 1];
+            pos--;
+        }
+        rows[pos] = row;
+        size++;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized List<Transaction> all() {
+        List<Transaction> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(store.get(rows[i]));
+        }
+        return list;
+    }
+
+    // from is inclusive, to is exclusive; either may be null for an open range. Returns the rows
+    // after (afterMillis, afterId), which is Long.MIN_VALUE twice for the first page.
+    synchronized HistoryPage page(LocalDateTime from, LocalDateTime to, long afterMillis, long afterId, int limit) {
+        int start = Math.max(from == null ? 0 : lowerBound(ColumnarTransactionStore.toMillis(from)), after(afterMillis, afterId));
+        int end = to == null ? size : lowerBound(ColumnarTransactionStore.toMillis(to));
+        int stop = (int) Math.min(end, (long) start + limit);
+        List<Transaction> page = new ArrayList<>(Math.max(0, stop - start));
+        for (int i = start; i < stop; i++) {
+            page.add(store.get(rows[i]));
+        }
+        String next = null;
+        if (stop < end) {
+            int last = rows[stop - 1];
+            next = HistoryPage.cursor(store.timestampMillis(last), store.id(last));
+        }
+        return new HistoryPage(page, next);
+    }
+
+    // Copies the rows after (afterMillis, afterId) and before toMillis, at most into.length of them.
+    synchronized int copyRows(long afterMillis, long afterId, long toMillis, int[] into) {
+        int start = after(afterMillis, afterId);
+        int n = Math.max(0, Math.min(lowerBound(toMillis) - start, into.length));
+        System.arraycopy(rows, start, into, 0, n);
+        return n;
+    }
+
+    // Index of the first row that sorts after (time, id).
+    private int after(long time, long id) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (compare(rows[mid], time, id) <= 0) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    private int compare(int row, long time, long id) {
+        int c = Long.compare(store.timestampMillis(row), time);
+        return c != 0 ? c : Long.compare(store.id(row), id);
+    }
+
+    private int lowerBound(long time) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (store.timestampMillis(rows[mid]) < time) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+}
@@ -0,0 +1,75 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public class AccountRepository {
+
+    private static final int TYPE_COUNT = AccountType.values().length;
+
+    private final ConcurrentMap<String, Account> byNumber;
+    // customerId -> one slot per AccountType (indexed by ordinal), holding the first account of that type
+    private final ConcurrentMap<String, AtomicReferenceArray<Account>> byOwner;
+
+    public AccountRepository() {
+        this(16);
+    }
+
+    public AccountRepository(int expectedAccounts) {
+        byNumber = new ConcurrentHashMap<>(expectedAccounts);
+        byOwner = new ConcurrentHashMap<>(expectedAccounts);
+    }
+
+    public void add(Account account) {
+        if (byNumber.putIfAbsent(account.getAccountNo(), account) != null) {
+            throw new IllegalStateException("Duplicate account number: " + account.getAccountNo());
+        }
+        slotsFor(account.getCustomerId()).compareAndSet(account.getAccountType().ordinal(), null, account);
+    }
+
+    // Registers the account only if the owner has no account of that type yet.
+    // Returns the already existing account, or null if the given one was stored.
+    public Account addIfAbsentForOwner(Account account) {
+        AtomicReferenceArray<Account> slots = slotsFor(account.getCustomerId());
+        int slot = account.getAccountType().ordinal();
+        if (!slots.compareAndSet(slot, null, account)) {
+            return slots.get(slot);
+        }
+        if (byNumber.putIfAbsent(account.getAccountNo(), account) != null) {
+            slots.compareAndSet(slot, account, null);
+            throw new IllegalStateException("Duplicate account number: " + account.getAccountNo());
+        }
+        return null;
+    }
+
+    public Account findByNumber(String accountNo) {
+        return accountNo == null ? null : byNumber.get(accountNo);
+    }
+
+    public Account findByOwnerAndType(String customerId, AccountType type) {
+        AtomicReferenceArray<Account> slots = byOwner.get(customerId);
+        return slots == null ? null : slots.get(type.ordinal());
+    }
+
+    public Collection<Account> findAll() {
+        return Collections.unmodifiableCollection(byNumber.values());
+    }
+
+    public int count() {
+        return byNumber.size();
+    }
+
+    private AtomicReferenceArray<Account> slotsFor(String customerId) {
+        AtomicReferenceArray<Account> slots = byOwner.get(customerId);
+        if (slots == null) {
+            slots = byOwner.computeIfAbsent(customerId, k -> new AtomicReferenceArray<>(TYPE_COUNT));
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,147 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Append-only transaction storage in parallel primitive columns, about 33 bytes per row:
+ * id (long), account (int code), type (byte), amount in paise (long), timestamp in epoch
+ * millis (long) and notes (int code). Account numbers and notes are dictionary-encoded, and
+ * {@link Transaction} objects are only built when a row is read.
+ *
+ * Rows live in fixed-size chunks so growing never copies existing data. Appends reserve a row
+ * with an atomic counter and publish it by writing the type column last with release
+ * semantics; readers treat a row whose type is still 0 as not yet written.
+ */
+public class ColumnarTransactionStore {
+
+    private static final int CHUNK_BITS = 16;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_BITS);
+    private static final int NO_NOTES = -1;
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+
+    private static final class Chunk {
+        final long[] ids = new long[CHUNK_SIZE];
+        final int[] accounts = new int[CHUNK_SIZE];
+        final byte[] types = new byte[CHUNK_SIZE]; // ordinal + 1, 0 until the row is complete
+        final long[] paise = new long[CHUNK_SIZE];
+        final long[] millis = new long[CHUNK_SIZE];
+        final int[] notes = new int[CHUNK_SIZE];
+    }
+
+    private final AtomicReferenceArray<Chunk> chunks = new AtomicReferenceArray<>(MAX_CHUNKS);
+    private final AtomicInteger nextRow = new AtomicInteger();
+    private final StringDictionary accountCodes;
+    private final StringDictionary notesCodes = new StringDictionary();
+
+    public ColumnarTransactionStore() {
+        this(64);
+    }
+
+    // Sized for the given number of distinct accounts, e.g. when reloading a checkpoint.
+    public ColumnarTransactionStore(int expectedAccounts) {
+        accountCodes = new StringDictionary(expectedAccounts);
+    }
+
+    // Returns the row the transaction was stored at.
+    public int append(Transaction t) {
+        return append(t.getId(), t.getAccountNo(), t.getType(), t.getAmount().toPaise(), toMillis(t.getTimestamp()), t.getNotes());
+    }
+
+    // The same from column values, e.g. history reloaded from disk without building Transactions.
+    public int append(long id, String accountNo, TransactionType type, long amountPaise, long timestampMillis, String notes) {
+        int row = nextRow.getAndIncrement();
+        if (row < 0) {
+            nextRow.decrementAndGet();
+            throw new IllegalStateException("Transaction store is full");
+        }
+        Chunk c = chunk(row >>> CHUNK_BITS);
+        int i = row & CHUNK_MASK;
+        c.ids[i] = id;
+        c.accounts[i] = accountCodes.encode(accountNo);
+        c.paise[i] = amountPaise;
+        c.millis[i] = timestampMillis;
+        c.notes[i] = notes == null ? NO_NOTES : notesCodes.encode(notes);
+        BYTES.setRelease(c.types, i, (byte) (type.ordinal() + 1));
+        return row;
+    }
+
+    // Upper bound of the rows handed out so far; some of the last ones may still be in flight.
+    public int rowCount() {
+        return nextRow.get();
+    }
+
+    public boolean isWritten(int row) {
+        Chunk c = chunks.get(row >>> CHUNK_BITS);
+        return c != null && (byte) BYTES.getAcquire(c.types, row & CHUNK_MASK) != 0;
+    }
+
+    public long timestampMillis(int row) {
+        return chunks.get(row >>> CHUNK_BITS).millis[row & CHUNK_MASK];
+    }
+
+    // Single-column reads of a written row, for readers that do not want a Transaction per row.
+    public long id(int row) {
+        return chunks.get(row >>> CHUNK_BITS).ids[row & CHUNK_MASK];
+    }
+
+    public TransactionType type(int row) {
+        return TYPES[(byte) BYTES.getAcquire(chunks.get(row >>> CHUNK_BITS).types, row & CHUNK_MASK) - 1];
+    }
+
+    public long amountPaise(int row) {
+        return chunks.get(row >>> CHUNK_BITS).paise[row & CHUNK_MASK];
+    }
+
+    public String notes(int row) {
+        int notes = chunks.get(row >>> CHUNK_BITS).notes[row & CHUNK_MASK];
+        return notes == NO_NOTES ? null : notesCodes.decode(notes);
+    }
+
+    public Transaction get(int row) {
+        Chunk c = chunks.get(row >>> CHUNK_BITS);
+        int i = row & CHUNK_MASK;
+        byte type = (byte) BYTES.getAcquire(c.types, i);
+        if (type == 0) throw new IllegalStateException("Row " + row + " has not been written");
+        int notes = c.notes[i];
+        return new Transaction(c.ids[i], accountCodes.decode(c.accounts[i]), TYPES[type - 1],
+                Money.ofPaise(c.paise[i]), fromMillis(c.millis[i]), notes == NO_NOTES ? null : notesCodes.decode(notes));
+    }
+
+    public int distinctAccounts() {
+        return accountCodes.size();
+    }
+
+    public int distinctNotes() {
+        return notesCodes.size();
+    }
+
+    static long toMillis(LocalDateTime ts) {
+        return ts.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    static LocalDateTime fromMillis(long millis) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(millis, 1000), Math.floorMod(millis, 1000) * 1_000_000, ZoneOffset.UTC);
+    }
+
+    private Chunk chunk(int index) {
+        Chunk c = chunks.get(index);
+        if (c == null) {
+            Chunk fresh = new Chunk();
+            c = chunks.compareAndSet(index, null, fresh) ? fresh : chunks.get(index);
+        }
+        return c;
+    }
+}
@@ -0,0 +1,42 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.Customer;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+public class CustomerRepository {
+
+    private final ConcurrentMap<String, Customer> customers;
+
+    public CustomerRepository() {
+        this(16);
+    }
+
+    public CustomerRepository(int expectedCustomers) {
+        customers = new ConcurrentHashMap<>(expectedCustomers);
+    }
+
+    // Returns false if a customer with the same id was already registered.
+    public boolean add(Customer customer) {
+        return customers.putIfAbsent(customer.getId(), customer) == null;
+    }
+
+    public Customer findById(String id) {
+        return id == null ? null : customers.get(id);
+    }
+
+    public boolean exists(String id) {
+        return id != null && customers.containsKey(id);
+    }
+
+    public Collection<Customer> findAll() {
+        return Collections.unmodifiableCollection(customers.values());
+    }
+
+    public int count() {
+        return customers.size();
+    }
+}
@@ -0,0 +1,56 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+import java.time.LocalDateTime;
+
+/**
+ * Walks an account's history within a time range one row at a time, reading the columns of
+ * the {@link ColumnarTransactionStore} directly. Row numbers are fetched in small batches, so
+ * memory stays constant however long the history is and writers to the account are only held
+ * up for one batch at a time. Each batch starts after the (timestamp, ID) of the previous one, so
+ * a row appended meanwhile is neither returned twice nor makes the cursor skip one. Not thread-safe.
+ */
+public final class HistoryCursor {
+
+    private static final int BATCH_SIZE = 256;
+
+    private final ColumnarTransactionStore store;
+    private final AccountHistory history;
+    private final int[] batch;
+    private final long toMillis;
+    private long afterMillis;
+    private long afterId = Long.MIN_VALUE;
+    private int batchSize;
+    private int batchIndex;
+    private int row = -1;
+
+    HistoryCursor(ColumnarTransactionStore store, AccountHistory history, LocalDateTime from, LocalDateTime to) {
+        this.store = store;
+        this.history = history;
+        this.batch = new int[history == null ? 0 : BATCH_SIZE];
+        this.afterMillis = from == null ? Long.MIN_VALUE : ColumnarTransactionStore.toMillis(from);
+        this.toMillis = to == null ? Long.MAX_VALUE : ColumnarTransactionStore.toMillis(to);
+    }
+
+    // Moves to the next row; false once the range is exhausted.
+    public boolean next() {
+        if (batchIndex == batchSize) {
+            if (history == null) return false;
+            batchSize = history.copyRows(afterMillis, afterId, toMillis, batch);
+            if (batchSize == 0) return false;
+            batchIndex = 0;
+            int last = batch[batchSize - 1];
+            afterMillis = store.timestampMillis(last);
+            afterId = store.id(last);
+        }
+        row = batch[batchIndex++];
+        return true;
+    }
+
+    public long id() { return store.id(row); }
+    public TransactionType type() { return store.type(row); }
+    public long amountPaise() { return store.amountPaise(row); }
+    public long timestampMillis() { return store.timestampMillis(row); }
+    public String notes() { return store.notes(row); }
+}
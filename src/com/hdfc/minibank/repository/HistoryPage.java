@@ -0,0 +1,28 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.Transaction;
+
+import java.util.List;
+
+public class HistoryPage {
+
+    private final List<Transaction> items;
+    private final String nextCursor;
+
+    public HistoryPage(List<Transaction> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Transaction> getItems() { return items; }
+
+    // Cursor to pass for the following page, or null when this was the last one. It names the
+    // last transaction of this page as timestampMillis_id, so later appends do not move it.
+    public String getNextCursor() { return nextCursor; }
+
+    public boolean hasMore() { return nextCursor != null; }
+
+    static String cursor(long timestampMillis, long id) {
+        return timestampMillis + "_" + id;
+    }
+}
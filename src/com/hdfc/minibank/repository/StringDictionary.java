@@ -0,0 +1,56 @@
+package com.hdfc.minibank.repository;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns a dense int code to every distinct string. Lookups by string are lock-free;
+ * new codes are handed out under a lock.
+ */
+final class StringDictionary {
+
+    private final ConcurrentMap<String, Integer> codes;
+    private volatile String[] values;
+    private int size;
+
+    StringDictionary() {
+        this(64);
+    }
+
+    StringDictionary(int expectedSize) {
+        codes = new ConcurrentHashMap<>(expectedSize);
+        values = new String[Math.max(64, expectedSize)];
+    }
+
+    int encode(String value) {
+        Integer code = codes.get(value);
+        if (code != null) return code;
+        synchronized (this) {
+            code = codes.get(value);
+            if (code != null) return code;
+            String[] v = values;
+            if (size == v.length) {
+                v = Arrays.copyOf(v, size * 2);
+            }
+            v[size] = value;
+            values = v;
+            codes.put(value, size);
+            return size++;
+        }
+    }
+
+    // Code of an already known string, or -1.
+    int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? -1 : code;
+    }
+
+    String decode(int code) {
+        return values[code];
+    }
+
+    int size() {
+        return codes.size();
+    }
+}
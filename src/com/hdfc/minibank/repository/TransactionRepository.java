@@ -0,0 +1,113 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.enums.TransactionType;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongConsumer;
+
+/**
+ * All posted transactions, stored column-wise in a {@link ColumnarTransactionStore}, plus a
+ * per-account index kept in timestamp order so that a statement costs O(log n + page size)
+ * instead of a scan over the whole bank.
+ */
+public class TransactionRepository {
+
+    private final ColumnarTransactionStore store;
+    private final ConcurrentMap<String, AccountHistory> byAccount;
+
+    public TransactionRepository() {
+        this(16);
+    }
+
+    public TransactionRepository(int expectedAccounts) {
+        store = new ColumnarTransactionStore(expectedAccounts);
+        byAccount = new ConcurrentHashMap<>(expectedAccounts);
+    }
+
+    public void add(Transaction t) {
+        index(t.getAccountNo(), store.append(t));
+    }
+
+    // add(Transaction) from column values, for history reloaded from disk.
+    public void add(long id, String accountNo, TransactionType type, long amountPaise, long timestampMillis, String notes) {
+        index(accountNo, store.append(id, accountNo, type, amountPaise, timestampMillis, notes));
+    }
+
+    public long count() {
+        return store.rowCount();
+    }
+
+    public void forEachId(LongConsumer action) {
+        int rows = store.rowCount();
+        for (int row = 0; row < rows; row++) {
+            if (store.isWritten(row)) action.accept(store.id(row));
+        }
+    }
+
+    public int countByAccount(String accountNo) {
+        AccountHistory history = byAccount.get(normalize(accountNo));
+        return history == null ? 0 : history.size();
+    }
+
+    // Whole-bank view, sorted on demand.
+    public List<Transaction> findAll() {
+        int rows = store.rowCount();
+        List<Transaction> list = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            if (store.isWritten(row)) list.add(store.get(row));
+        }
+        list.sort(Comparator.comparing(Transaction::getTimestamp));
+        return list;
+    }
+
+    public List<Transaction> findByAccount(String accountNo) {
+        AccountHistory history = byAccount.get(normalize(accountNo));
+        return history == null ? Collections.emptyList() : history.all();
+    }
+
+    // One page of an account's history within [from, to); start with a null cursor and pass
+    // HistoryPage.getNextCursor() for the next one.
+    public HistoryPage findByAccount(String accountNo, LocalDateTime from, LocalDateTime to, String cursor, int pageSize) {
+        if (pageSize <= 0) throw new IllegalArgumentException("Page size must be positive");
+        long afterMillis = Long.MIN_VALUE;
+        long afterId = Long.MIN_VALUE;
+        if (cursor != null) {
+            int sep = cursor.indexOf('_');
+            try {
+                afterMillis = Long.parseLong(cursor, 0, sep, 10);
+                afterId = Long.parseLong(cursor, sep + 1, cursor.length(), 10);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                throw new IllegalArgumentException("Invalid cursor: " + cursor);
+            }
+        }
+        AccountHistory history = byAccount.get(normalize(accountNo));
+        return history == null
+                ? new HistoryPage(Collections.emptyList(), null)
+                : history.page(from, to, afterMillis, afterId, pageSize);
+    }
+
+    // Streams an account's history within [from, to) without building Transaction objects.
+    public HistoryCursor openHistory(String accountNo, LocalDateTime from, LocalDateTime to) {
+        return new HistoryCursor(store, byAccount.get(normalize(accountNo)), from, to);
+    }
+
+    private void index(String accountNo, int row) {
+        AccountHistory history = byAccount.get(accountNo);
+        if (history == null) {
+            history = byAccount.computeIfAbsent(accountNo, k -> new AccountHistory(store));
+        }
+        history.append(row);
+    }
+
+    private static String normalize(String accountNo) {
+        return accountNo == null ? "" : accountNo.toUpperCase(Locale.ROOT);
+    }
+}
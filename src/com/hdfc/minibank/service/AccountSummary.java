@@ -0,0 +1,45 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
+
+// Read-only view of an account taken at one balance, with the derived values already worked out.
+public class AccountSummary {
+
+    public static final DateTimeFormatter OPENED_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final String accountNo;
+    private final String customerId;
+    private final AccountType type;
+    private final String openedAt;
+    private final long balancePaise;
+    private final Money minimumBalance;
+    private final BigDecimal interestRate;
+    private final Money annualInterest;
+
+    AccountSummary(Account account, long balancePaise) {
+        this.accountNo = account.getAccountNo();
+        this.customerId = account.getCustomerId();
+        this.type = account.getAccountType();
+        this.openedAt = account.getCreatedAt().format(OPENED_FORMAT);
+        this.balancePaise = balancePaise;
+        this.minimumBalance = account.getMinimumBalance();
+        this.interestRate = account.getInterestRate();
+        // same as Account.calculateInterest(), but on the balance this summary was taken at
+        this.annualInterest = Money.ofPaise(balancePaise).percentage(account.getInterestRateBasisPoints(), Account.INTEREST_ROUNDING);
+    }
+
+    public String getAccountNo() { return accountNo; }
+    public String getCustomerId() { return customerId; }
+    public AccountType getAccountType() { return type; }
+    public String getOpenedAt() { return openedAt; }
+    public Money getBalance() { return Money.ofPaise(balancePaise); }
+    public long getBalancePaise() { return balancePaise; }
+    public Money getMinimumBalance() { return minimumBalance; }
+    public BigDecimal getInterestRate() { return interestRate; }
+    public Money getAnnualInterest() { return annualInterest; }
+}
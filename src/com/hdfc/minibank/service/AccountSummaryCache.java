@@ -0,0 +1,92 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.metrics.BankMetrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded read-through cache of {@link AccountSummary} views, split into segments that are each
+ * an access-ordered LinkedHashMap, so eviction is least-recently-used within a segment and a
+ * lookup only locks its own segment.
+ *
+ * Every summary remembers the balance it was built from, and a cached one is only served while
+ * the account still has that balance. Balance changes also invalidate the entry (see
+ * BankService.record), which keeps the cache small, but it is the balance check that makes the
+ * view always agree with the account, even when a reader races a deposit.
+ */
+class AccountSummaryCache {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment[] segments = new Segment[SEGMENTS];
+    private final BankMetrics metrics;
+
+    AccountSummaryCache(int capacity, BankMetrics metrics) {
+        this.metrics = metrics;
+        int perSegment = Math.max(1, (capacity + SEGMENTS - 1) / SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+    }
+
+    AccountSummary get(Account account) {
+        long balance = account.getBalancePaise();
+        Segment segment = segmentFor(account.getAccountNo());
+        AccountSummary summary;
+        synchronized (segment) {
+            summary = segment.get(account.getAccountNo());
+        }
+        if (summary != null && summary.getBalancePaise() == balance) {
+            metrics.summaryCacheHit();
+            return summary;
+        }
+        metrics.summaryCacheMiss();
+        summary = new AccountSummary(account, balance);
+        synchronized (segment) {
+            segment.put(account.getAccountNo(), summary);
+        }
+        return summary;
+    }
+
+    void invalidate(String accountNo) {
+        Segment segment = segmentFor(accountNo);
+        synchronized (segment) {
+            segment.remove(accountNo);
+        }
+    }
+
+    int size() {
+        int n = 0;
+        for (Segment s : segments) {
+            synchronized (s) {
+                n += s.size();
+            }
+        }
+        return n;
+    }
+
+    private Segment segmentFor(String accountNo) {
+        int h = accountNo.hashCode();
+        return segments[(h ^ (h >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    private final class Segment extends LinkedHashMap<String, AccountSummary> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(capacity * 4 / 3 + 1, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, AccountSummary> eldest) {
+            if (size() <= capacity) return false;
+            metrics.summaryCacheEviction();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Money;
+
+import java.time.LocalDate;
+
+// Totals for a customer or an account type as read from BankAggregates; the daily figures are for one date.
+public class AggregateView {
+
+    private final LocalDate date;
+    private final long balancePaise;
+    private final long depositedPaise;
+    private final long withdrawnPaise;
+    private final long transfersIn;
+    private final long transfersOut;
+
+    AggregateView(LocalDate date, long balancePaise, long depositedPaise, long withdrawnPaise, long transfersIn, long transfersOut) {
+        this.date = date;
+        this.balancePaise = balancePaise;
+        this.depositedPaise = depositedPaise;
+        this.withdrawnPaise = withdrawnPaise;
+        this.transfersIn = transfersIn;
+        this.transfersOut = transfersOut;
+    }
+
+    public LocalDate getDate() { return date; }
+    public Money getTotalBalance() { return Money.ofPaise(balancePaise); }
+    public long getTotalBalancePaise() { return balancePaise; }
+    public Money getDeposited() { return Money.ofPaise(depositedPaise); }
+    public Money getWithdrawn() { return Money.ofPaise(withdrawnPaise); }
+    public long getTransfersIn() { return transfersIn; }
+    public long getTransfersOut() { return transfersOut; }
+}
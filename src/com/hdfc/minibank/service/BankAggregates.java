@@ -0,0 +1,136 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.repository.AccountRepository;
+import com.hdfc.minibank.repository.HistoryCursor;
+import com.hdfc.minibank.repository.TransactionRepository;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Running totals per customer and per account type, brought up to date by BankService.record
+ * as each transaction is posted, so reading them never scans accounts or history.
+ *
+ * Every total is a LongAdder, so postings to different accounts of one customer (or of one
+ * account type) do not contend. The daily figures live in a slot per date, two slots per set
+ * of totals, and the first posting of a new date replaces the older slot, so nothing has to be
+ * reset at midnight. A view sums the adders one after another, so while postings are in flight
+ * it is not a snapshot of one instant.
+ */
+class BankAggregates {
+
+    private static final long MILLIS_PER_DAY = TimeUnit.DAYS.toMillis(1);
+
+    private final AccountRepository accounts;
+    private final ConcurrentMap<String, Totals> byCustomer = new ConcurrentHashMap<>();
+    private final Totals[] byType = new Totals[AccountType.values().length];
+
+    BankAggregates(AccountRepository accounts) {
+        this.accounts = accounts;
+        for (int i = 0; i < byType.length; i++) byType[i] = new Totals();
+    }
+
+    void post(Transaction t) {
+        Account acc = accounts.findByNumber(t.getAccountNo());
+        if (acc == null) return;
+        long paise = t.getAmount().toPaise();
+        long epochDay = t.getTimestamp().toLocalDate().toEpochDay();
+        customer(acc.getCustomerId()).post(t.getType(), paise, epochDay);
+        byType[acc.getAccountType().ordinal()].post(t.getType(), paise, epochDay);
+    }
+
+    // Sets the totals from the recovered accounts, with the flows of today from their history.
+    void load(TransactionRepository history, LocalDate today) {
+        long epochDay = today.toEpochDay();
+        for (Account acc : accounts.findAll()) {
+            Totals customer = customer(acc.getCustomerId());
+            Totals type = byType[acc.getAccountType().ordinal()];
+            customer.balance.add(acc.getBalancePaise());
+            type.balance.add(acc.getBalancePaise());
+            HistoryCursor rows = history.openHistory(acc.getAccountNo(), today.atStartOfDay(), null);
+            while (rows.next()) {
+                if (Math.floorDiv(rows.timestampMillis(), MILLIS_PER_DAY) != epochDay) continue;
+                customer.postDaily(rows.type(), rows.amountPaise(), epochDay);
+                type.postDaily(rows.type(), rows.amountPaise(), epochDay);
+            }
+        }
+    }
+
+    AggregateView forCustomer(String customerId, LocalDate date) {
+        Totals totals = byCustomer.get(customerId);
+        return totals == null ? new AggregateView(date, 0, 0, 0, 0, 0) : totals.view(date);
+    }
+
+    AggregateView forType(AccountType type, LocalDate date) {
+        return byType[type.ordinal()].view(date);
+    }
+
+    private Totals customer(String customerId) {
+        Totals totals = byCustomer.get(customerId);
+        return totals != null ? totals : byCustomer.computeIfAbsent(customerId, k -> new Totals());
+    }
+
+    private static final class Totals {
+        private final LongAdder balance = new LongAdder();
+        private final AtomicReferenceArray<Day> days = new AtomicReferenceArray<>(2);
+
+        private void post(TransactionType type, long paise, long epochDay) {
+            balance.add(type == TransactionType.WITHDRAWAL || type == TransactionType.TRANSFER_OUT ? -paise : paise);
+            postDaily(type, paise, epochDay);
+        }
+
+        private void postDaily(TransactionType type, long paise, long epochDay) {
+            Day day = day(epochDay);
+            if (day == null) return;
+            switch (type) {
+                case DEPOSIT: day.deposited.add(paise); break;
+                case WITHDRAWAL: day.withdrawn.add(paise); break;
+                case TRANSFER_IN: day.transfersIn.increment(); break;
+                case TRANSFER_OUT: day.transfersOut.increment(); break;
+                default: break; // interest only moves the balance
+            }
+        }
+
+        // The slot for epochDay, replacing an older date's; null if the slot has moved past it.
+        private Day day(long epochDay) {
+            int i = (int) (epochDay & 1);
+            Day day = days.get(i);
+            while (day == null || day.epochDay < epochDay) {
+                Day fresh = new Day(epochDay);
+                if (days.compareAndSet(i, day, fresh)) return fresh;
+                day = days.get(i);
+            }
+            return day.epochDay == epochDay ? day : null;
+        }
+
+        private AggregateView view(LocalDate date) {
+            long epochDay = date.toEpochDay();
+            Day day = days.get((int) (epochDay & 1));
+            if (day == null || day.epochDay != epochDay) {
+                return new AggregateView(date, balance.sum(), 0, 0, 0, 0);
+            }
+            return new AggregateView(date, balance.sum(), day.deposited.sum(), day.withdrawn.sum(),
+                    day.transfersIn.sum(), day.transfersOut.sum());
+        }
+    }
+
+    private static final class Day {
+        private final long epochDay;
+        private final LongAdder deposited = new LongAdder();
+        private final LongAdder withdrawn = new LongAdder();
+        private final LongAdder transfersIn = new LongAdder();
+        private final LongAdder transfersOut = new LongAdder();
+
+        private Day(long epochDay) {
+            this.epochDay = epochDay;
+        }
+    }
+}
@@ -0,0 +1,671 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.accounts.CurrentAccount;
+import com.hdfc.minibank.domain.accounts.SavingsAccount;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.exceptions.InvalidAccountException;
+import com.hdfc.minibank.ids.BlockSequence;
+import com.hdfc.minibank.ids.SnowflakeIdGenerator;
+import com.hdfc.minibank.journal.CheckpointStore;
+import com.hdfc.minibank.journal.Journal;
+import com.hdfc.minibank.journal.JournalRecovery;
+import com.hdfc.minibank.journal.TransactionJournal;
+import com.hdfc.minibank.limits.VelocityLimiter;
+import com.hdfc.minibank.limits.VelocityPolicy;
+import com.hdfc.minibank.limits.VelocityPolicy.Flow;
+import com.hdfc.minibank.metrics.BankMetrics;
+import com.hdfc.minibank.metrics.Operation;
+import com.hdfc.minibank.repository.AccountRepository;
+import com.hdfc.minibank.repository.CustomerRepository;
+import com.hdfc.minibank.repository.HistoryPage;
+import com.hdfc.minibank.repository.TransactionRepository;
+import com.hdfc.minibank.shard.ShardMap;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * Banking operations shared by every front end. Safe to call from many threads.
+ */
+public class BankService implements AutoCloseable {
+
+    public static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w._%+-]+@[\\w.-]+\\.[A-Za-z]{2,}$");
+    public static final Pattern PHONE_PATTERN = Pattern.compile("^[6-9]\\d{9}$"); // Indian mobile format
+    public static final Pattern CUSTOMER_ID_PATTERN = Pattern.compile("^CUST\\d{4}$");
+
+    private final CustomerRepository customers;
+    private final AccountRepository accounts;
+    private final TransactionRepository transactions;
+
+    private final Journal journal;
+    private final CheckpointStore checkpoints;
+    private final BankMetrics metrics = new BankMetrics();
+    private final BatchTransferEngine batchTransfers = new BatchTransferEngine(this);
+    private final AccountSummaryCache summaries = new AccountSummaryCache(Integer.getInteger("minibank.summaryCache.size", 10_000), metrics);
+    private final BankAggregates aggregates;
+    private final int recoveredRecords;
+    private final VelocityLimiter limiter;
+
+    // Small blocks keep account and customer numbers compact across restarts.
+    private static final int ID_BLOCK_SIZE = 100;
+    private static final long FIRST_ID = 1000;
+    private static final long STEP_EXPIRY_INTERVAL_MILLIS = 60_000;
+
+    private static final ThreadLocal<StatementWriter> STATEMENT_WRITERS = ThreadLocal.withInitial(StatementWriter::new);
+
+    private final SnowflakeIdGenerator transactionIds = new SnowflakeIdGenerator(Integer.getInteger("minibank.nodeId", 0));
+    private final BlockSequence customerSeq;
+    private final BlockSequence accountSeq;
+
+    // This node's place in a sharded bank (see ShardMap); a single node is shard 0 of 1.
+    private final int shardIndex = Integer.getInteger("minibank.shard", 0);
+    private final int shardCount = Integer.getInteger("minibank.shards", 1);
+    // Cross-shard transfer steps applied (or in progress) within the retention period, by step
+    // id. Step ids are time ordered, so the expired ones are cut off the head of the map.
+    private final ConcurrentSkipListMap<Long, CompletableFuture<Void>> transferSteps = new ConcurrentSkipListMap<>();
+    private final long stepRetentionMillis = ShardMap.stepRetentionMillis();
+    private volatile long nextStepExpiry;
+    private volatile IngestionQueue ingestion; // started by the first asynchronous request
+    private final Object[] customerLocks = newLocks(64); // striped by customer ID, see addCustomer
+
+    // In-memory bank without persistence or velocity limits.
+    public BankService() {
+        this(VelocityPolicy.none());
+    }
+
+    // In-memory bank enforcing the given velocity limits.
+    public BankService(VelocityPolicy limits) {
+        this.customers = new CustomerRepository();
+        this.accounts = new AccountRepository();
+        this.transactions = new TransactionRepository();
+        this.journal = Journal.disabled();
+        this.checkpoints = null;
+        this.aggregates = new BankAggregates(accounts);
+        this.recoveredRecords = 0;
+        this.limiter = new VelocityLimiter(limits);
+        this.customerSeq = new BlockSequence(FIRST_ID);
+        this.accountSeq = new BlockSequence(FIRST_ID);
+    }
+
+    // Opens (or creates) the journal under dataDir and rebuilds state from the latest checkpoint,
+    // its history files and the journal written after it. Velocity limits come from
+    // -Dminibank.limits (off by default).
+    public BankService(Path dataDir) {
+        this(dataDir, VelocityPolicy.fromSystemProperties());
+    }
+
+    public BankService(Path dataDir, VelocityPolicy limits) {
+        JournalRecovery recovery;
+        TransactionJournal journal;
+        try {
+            this.checkpoints = CheckpointStore.open(dataDir.resolve("checkpoints"));
+            // sized up front so reloading millions of accounts does not keep rehashing
+            this.customers = new CustomerRepository(checkpoints.getCustomerCount());
+            this.accounts = new AccountRepository(checkpoints.getAccountCount());
+            this.transactions = new TransactionRepository(checkpoints.getAccountCount());
+            recovery = new JournalRecovery(customers, accounts, transactions);
+            long lsn = checkpoints.load(recovery);
+            checkpoints.loadHistory(recovery);
+            journal = TransactionJournal.open(dataDir.resolve("journal"), lsn, recovery);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open transaction journal in " + dataDir, e);
+        }
+        this.journal = journal;
+        this.recoveredRecords = recovery.complete();
+        this.aggregates = new BankAggregates(accounts);
+        aggregates.load(transactions, LocalDate.now());
+        this.limiter = new VelocityLimiter(limits);
+        checkpoints.startPeriodic(journal, Long.getLong("minibank.checkpoint.intervalSeconds", 60));
+        Path ids = dataDir.resolve("ids");
+        this.customerSeq = new BlockSequence(ids.resolve("customer.seq"), FIRST_ID, ID_BLOCK_SIZE);
+        this.accountSeq = new BlockSequence(ids.resolve("account.seq"), FIRST_ID, ID_BLOCK_SIZE);
+        for (Account a : accounts.findAll()) {
+            accountSeq.advancePast(numericSuffix(a.getAccountNo()));
+        }
+        for (Customer c : customers.findAll()) {
+            customerSeq.advancePast(numericSuffix(c.getId()));
+        }
+        transactionIds.advancePast(recovery.getMaxTransactionId());
+        if (shardCount > 1) {
+            CompletableFuture<Void> applied = CompletableFuture.completedFuture(null);
+            long oldest = SnowflakeIdGenerator.firstIdAt(System.currentTimeMillis() - stepRetentionMillis);
+            transactions.forEachId(id -> {
+                if (id >= oldest && SnowflakeIdGenerator.nodeId(id) == ShardMap.ROUTER_NODE_ID) transferSteps.put(id, applied);
+            });
+        }
+    }
+
+    public CustomerRepository getCustomers() { return customers; }
+    public AccountRepository getAccounts() { return accounts; }
+    public int getRecoveredRecords() { return recoveredRecords; }
+    public BankMetrics getMetrics() { return metrics; }
+
+    public TransactionRepository getTransactions() { return transactions; }
+
+    // Whether this node is one of several shards (-Dminibank.shards > 1).
+    public boolean isSharded() { return shardCount > 1; }
+
+    public long getTransactionCount() {
+        return transactions.count();
+    }
+
+    public Customer registerCustomer(Customer c) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            validateCustomer(c);
+            journal.awaitDurable(addCustomer(c));
+            ok = true;
+            return c;
+        } finally {
+            record(Operation.REGISTER_CUSTOMER, start, ok);
+        }
+    }
+
+    static void validateCustomer(Customer c) {
+        if (c.getId() == null || !CUSTOMER_ID_PATTERN.matcher(c.getId()).matches()) {
+            throw new IllegalArgumentException("Invalid Customer ID format.");
+        }
+        if (c.getEmail() == null || !EMAIL_PATTERN.matcher(c.getEmail()).matches()) {
+            throw new IllegalArgumentException("Invalid email format.");
+        }
+        if (c.getPhone() == null || !PHONE_PATTERN.matcher(c.getPhone()).matches()) {
+            throw new IllegalArgumentException("Invalid phone format.");
+        }
+    }
+
+    public Account openAccount(String customerId, AccountType type, Money initial) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            if (!customers.exists(customerId)) {
+                throw new IllegalArgumentException("Customer not found: " + customerId);
+            }
+            Account account = newAccount(customerId, type, initial);
+            journal.awaitDurable(addAccount(account, initial, "Initial deposit"));
+            ok = true;
+            return account;
+        } finally {
+            record(Operation.OPEN_ACCOUNT, start, ok);
+        }
+    }
+
+    // Loads customers (and optionally a first account each) from a CSV file; see BulkOnboarding.
+    // Bad rows are skipped and, when errorReport is not null, written there as line,message.
+    public BulkOnboardingResult onboardCustomers(Path csv, Path errorReport) throws IOException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try (BufferedReader in = Files.newBufferedReader(csv);
+             BufferedWriter errors = errorReport == null ? null : Files.newBufferedWriter(errorReport)) {
+            BulkOnboardingResult result = new BulkOnboarding(this, errors).run(in);
+            ok = true;
+            return result;
+        } finally {
+            record(Operation.BULK_ONBOARD, start, ok);
+        }
+    }
+
+    public Account findAccount(String accountNo) throws InvalidAccountException {
+        Account acc = accounts.findByNumber(accountNo);
+        if (acc == null) {
+            metrics.invalidAccount();
+            throw new InvalidAccountException("Account not found: " + accountNo);
+        }
+        return acc;
+    }
+
+    // Cached view of the account, always at its current balance.
+    public AccountSummary getAccountSummary(Account acc) {
+        return summaries.get(acc);
+    }
+
+    // Total balance of the customer's accounts and today's flows through them, kept up to date as
+    // transactions are posted (see BankAggregates); a customer without accounts has all zeros.
+    public AggregateView getCustomerAggregate(String customerId) {
+        return aggregates.forCustomer(customerId, LocalDate.now());
+    }
+
+    // The same totals over every account of the type.
+    public AggregateView getAccountTypeAggregate(AccountType type) {
+        return aggregates.forType(type, LocalDate.now());
+    }
+
+    public void deposit(Account acc, Money amount) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            acc.deposit(amount);
+            long lsn;
+            try {
+                lsn = record(new Transaction(nextTransactionId(), acc.getAccountNo(), TransactionType.DEPOSIT, amount, LocalDateTime.now(), "Deposit"));
+            } catch (RuntimeException e) {
+                acc.reverseDeposit(amount);
+                throw e;
+            }
+            journal.awaitDurable(lsn);
+            ok = true;
+        } finally {
+            record(Operation.DEPOSIT, start, ok);
+        }
+    }
+
+    public void withdraw(Account acc, Money amount) throws InsufficientBalanceException, VelocityLimitExceededException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        long counted = 0;
+        try {
+            counted = limitVelocity(acc, Flow.WITHDRAWAL, amount);
+            acc.withdraw(amount);
+            long lsn;
+            try {
+                lsn = record(new Transaction(nextTransactionId(), acc.getAccountNo(), TransactionType.WITHDRAWAL, amount, LocalDateTime.now(), "Withdrawal"));
+            } catch (RuntimeException e) {
+                acc.deposit(amount);
+                releaseVelocity(acc, Flow.WITHDRAWAL, amount, counted);
+                throw e;
+            }
+            journal.awaitDurable(lsn);
+            ok = true;
+        } catch (InsufficientBalanceException e) {
+            releaseVelocity(acc, Flow.WITHDRAWAL, amount, counted);
+            metrics.insufficientBalance();
+            throw e;
+        } finally {
+            record(Operation.WITHDRAW, start, ok);
+        }
+    }
+
+    public void transfer(Account from, Account to, Money amount) throws InsufficientBalanceException, VelocityLimitExceededException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        long counted = 0;
+        try {
+            counted = limitVelocity(from, Flow.TRANSFER, amount);
+            Account first = from.getAccountNo().compareTo(to.getAccountNo()) < 0 ? from : to;
+            Account second = (first == from) ? to : from;
+            long lsn;
+            long lockStart = System.nanoTime();
+            synchronized (first) {
+                synchronized (second) {
+                    metrics.recordTransferLockWait(System.nanoTime() - lockStart);
+                    from.withdraw(amount);
+                    try {
+                        to.deposit(amount);
+                    } catch (ArithmeticException overflow) {
+                        from.deposit(amount);
+                        releaseVelocity(from, Flow.TRANSFER, amount, counted);
+                        throw overflow;
+                    }
+                    LocalDateTime now = LocalDateTime.now();
+                    // both legs in one journal record, so a crash cannot keep the debit without the credit
+                    try {
+                        lsn = recordAll(List.of(
+                                new Transaction(nextTransactionId(), from.getAccountNo(), TransactionType.TRANSFER_OUT, amount, now, "Transfer to " + to.getAccountNo()),
+                                new Transaction(nextTransactionId(), to.getAccountNo(), TransactionType.TRANSFER_IN, amount, now, "Transfer from " + from.getAccountNo())));
+                    } catch (RuntimeException e) {
+                        to.reverseDeposit(amount);
+                        from.deposit(amount);
+                        releaseVelocity(from, Flow.TRANSFER, amount, counted);
+                        throw e;
+                    }
+                }
+            }
+            journal.awaitDurable(lsn);
+            ok = true;
+        } catch (InsufficientBalanceException e) {
+            releaseVelocity(from, Flow.TRANSFER, amount, counted);
+            metrics.insufficientBalance();
+            throw e;
+        } finally {
+            record(Operation.TRANSFER, start, ok);
+        }
+    }
+
+    // One leg of a cross-shard transfer driven by ShardRouter. Each step carries an id from the
+    // router's node and is applied at most once, so the router can retry it freely within the
+    // retention period of ShardMap.stepRetentionMillis().
+    public void debitTransferStep(long stepId, Account from, Money amount, String toAccountNo) throws InsufficientBalanceException, VelocityLimitExceededException {
+        applyTransferStep(stepId, from, TransactionType.TRANSFER_OUT, amount, "Transfer to " + toAccountNo);
+    }
+
+    public void creditTransferStep(long stepId, Account to, Money amount, String fromAccountNo) throws InsufficientBalanceException, VelocityLimitExceededException {
+        applyTransferStep(stepId, to, TransactionType.TRANSFER_IN, amount, "Transfer from " + fromAccountNo);
+    }
+
+    // Gives a debited amount back when the credit could not be made; debitId must be a debit
+    // step this shard applied.
+    public void refundTransferStep(long stepId, long debitId, Account from, Money amount, String toAccountNo) throws InsufficientBalanceException, VelocityLimitExceededException {
+        CompletableFuture<Void> debit = transferSteps.get(debitId);
+        if (debit == null || !debit.isDone() || debit.isCompletedExceptionally()) {
+            throw new IllegalArgumentException("No debit " + debitId + " to refund");
+        }
+        applyTransferStep(stepId, from, TransactionType.TRANSFER_IN, amount, "Refund of transfer to " + toAccountNo);
+    }
+
+    private void applyTransferStep(long stepId, Account acc, TransactionType type, Money amount, String notes)
+            throws InsufficientBalanceException, VelocityLimitExceededException {
+        if (SnowflakeIdGenerator.nodeId(stepId) != ShardMap.ROUTER_NODE_ID) {
+            throw new IllegalArgumentException("Not a transfer step id: " + stepId);
+        }
+        long now = System.currentTimeMillis();
+        if (Math.abs(now - SnowflakeIdGenerator.timestampMillis(stepId)) > stepRetentionMillis) {
+            throw new IllegalArgumentException("Transfer step " + stepId + " is outside the retention period");
+        }
+        if (now >= nextStepExpiry) {
+            nextStepExpiry = now + STEP_EXPIRY_INTERVAL_MILLIS;
+            transferSteps.headMap(SnowflakeIdGenerator.firstIdAt(now - stepRetentionMillis)).clear();
+        }
+        CompletableFuture<Void> mine = new CompletableFuture<>();
+        CompletableFuture<Void> earlier = transferSteps.putIfAbsent(stepId, mine);
+        if (earlier != null) {
+            awaitTransferStep(earlier);
+            return;
+        }
+        long start = System.nanoTime();
+        boolean ok = false;
+        long counted = 0;
+        boolean applied = false;
+        try {
+            if (type == TransactionType.TRANSFER_OUT) {
+                counted = limitVelocity(acc, Flow.TRANSFER, amount);
+                acc.withdraw(amount);
+            } else {
+                acc.deposit(amount);
+            }
+            applied = true;
+            long lsn = record(new Transaction(stepId, acc.getAccountNo(), type, amount, LocalDateTime.now(), notes));
+            applied = false; // journaled, so it stands even if the wait below fails
+            journal.awaitDurable(lsn);
+            mine.complete(null);
+            ok = true;
+        } catch (InsufficientBalanceException | VelocityLimitExceededException | RuntimeException e) {
+            // nothing was journaled, so a later retry may try again
+            if (applied) {
+                if (type == TransactionType.TRANSFER_OUT) acc.deposit(amount);
+                else acc.reverseDeposit(amount);
+            }
+            transferSteps.remove(stepId, mine);
+            mine.completeExceptionally(e);
+            if (counted != 0) releaseVelocity(acc, Flow.TRANSFER, amount, counted);
+            if (e instanceof InsufficientBalanceException) metrics.insufficientBalance();
+            throw e;
+        } finally {
+            record(Operation.TRANSFER_STEP, start, ok);
+        }
+    }
+
+    private static void awaitTransferStep(CompletableFuture<Void> step) throws InsufficientBalanceException, VelocityLimitExceededException {
+        try {
+            step.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof InsufficientBalanceException) throw (InsufficientBalanceException) e.getCause();
+            if (e.getCause() instanceof VelocityLimitExceededException) throw (VelocityLimitExceededException) e.getCause();
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    // Queues a deposit for the ingestion writers (see IngestionQueue); the future completes with
+    // the posted transaction once it is durable.
+    public CompletableFuture<Transaction> depositAsync(Account acc, Money amount) {
+        return ingestion().submit(acc, TransactionType.DEPOSIT, amount);
+    }
+
+    // Like depositAsync; fails with InsufficientBalanceException or VelocityLimitExceededException
+    // when the withdrawal is refused.
+    public CompletableFuture<Transaction> withdrawAsync(Account acc, Money amount) {
+        return ingestion().submit(acc, TransactionType.WITHDRAWAL, amount);
+    }
+
+    private IngestionQueue ingestion() {
+        IngestionQueue q = ingestion;
+        if (q == null) {
+            synchronized (this) {
+                q = ingestion;
+                if (q == null) {
+                    q = new IngestionQueue(this, Integer.getInteger("minibank.ingest.partitions", Runtime.getRuntime().availableProcessors()),
+                            Integer.getInteger("minibank.ingest.capacity", 4096));
+                    ingestion = q;
+                }
+            }
+        }
+        return q;
+    }
+
+    // Applies many transfers at once; see BatchTransferEngine for how instructions are settled.
+    public BatchTransferResult transferBatch(List<TransferInstruction> instructions) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            BatchTransferResult result = batchTransfers.execute(instructions);
+            ok = true;
+            return result;
+        } finally {
+            record(Operation.BATCH_TRANSFER, start, ok);
+        }
+    }
+
+    // Transactions of one account (or of the whole bank when accountNo is empty) in time order.
+    public List<Transaction> getTransactionHistory(String accountNo) {
+        long start = System.nanoTime();
+        List<Transaction> list = accountNo.isEmpty() ? transactions.findAll() : transactions.findByAccount(accountNo);
+        metrics.recordOperation(Operation.HISTORY, start);
+        return list;
+    }
+
+    // A page of an account statement within [from, to); null bounds are open. Start with a null
+    // cursor and pass HistoryPage.getNextCursor() for the next page.
+    public HistoryPage getStatementPage(String accountNo, LocalDateTime from, LocalDateTime to, String cursor, int pageSize) {
+        long start = System.nanoTime();
+        HistoryPage page = transactions.findByAccount(accountNo, from, to, cursor, pageSize);
+        metrics.recordOperation(Operation.HISTORY, start);
+        return page;
+    }
+
+    // Streams the statement of an account within [from, to) to out; returns the number of transactions.
+    public long exportStatement(String accountNo, LocalDateTime from, LocalDateTime to, StatementFormat format,
+                                WritableByteChannel out) throws IOException {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            long rows = STATEMENT_WRITERS.get().write(accountNo, transactions.openHistory(accountNo, from, to), format, out);
+            ok = true;
+            return rows;
+        } finally {
+            record(Operation.EXPORT_STATEMENT, start, ok);
+        }
+    }
+
+    // Writes each account's statement to dir/<accountNo>.<extension>, several accounts at a time
+    // on the common fork/join pool. Returns the total number of transactions written.
+    public long exportStatements(Collection<String> accountNos, LocalDateTime from, LocalDateTime to,
+                                 StatementFormat format, Path dir) throws IOException {
+        Files.createDirectories(dir);
+        return accountNos.parallelStream().mapToLong(accountNo -> {
+            Path file = dir.resolve(accountNo + "." + format.getExtension());
+            try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                return exportStatement(accountNo, from, to, format, ch);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not export statement to " + file, e);
+            }
+        }).sum();
+    }
+
+    public String autoCreateCustomerIfNeeded() {
+        long n = customerSeq.next();
+        String id = "CUST" + n;
+        Customer c = new Customer(id, "Concurrency User", "user"+n+"@example.com", "9" + (int)(Math.random()*1000000000L), LocalDate.of(1990,1,1));
+        try {
+            addCustomer(c);
+        } catch (IllegalArgumentException registered) {
+            // the ID was registered by hand in the meantime; use that customer
+        }
+        return id;
+    }
+
+    public Account autoCreateAccountIfNeeded(String custId, AccountType type, Money initial) {
+        Account existing = accounts.findByOwnerAndType(custId, type);
+        if (existing != null) return existing;
+        // one creator per owner, so the account is journaled before anyone can find it
+        synchronized (customerLock(custId)) {
+            existing = accounts.findByOwnerAndType(custId, type);
+            if (existing != null) return existing;
+            Account a = newAccount(custId, type, initial);
+            addAccount(a, initial, "Initial");
+            return a;
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (ingestion != null) ingestion.close();
+        }
+        metrics.stop();
+        journal.close();
+        if (checkpoints != null) checkpoints.close();
+    }
+
+    // Journals a transaction whose balance change has been made and posts it to the history and
+    // the views; returns its LSN. The journal goes first: if it refuses the record, nothing is
+    // posted and the exception is the caller's cue to undo the balance change.
+    long record(Transaction t) {
+        long start = System.nanoTime();
+        long lsn = journal.appendTransaction(t);
+        post(t, start);
+        return lsn;
+    }
+
+    // record(Transaction) for a batch, with one journal record for all of them (see
+    // Journal.appendTransactions).
+    long recordAll(List<Transaction> batch) {
+        long start = System.nanoTime();
+        long lsn = journal.appendTransactions(batch);
+        for (Transaction t : batch) post(t, start);
+        return lsn;
+    }
+
+    private void post(Transaction t, long start) {
+        transactions.add(t);
+        summaries.invalidate(t.getAccountNo());
+        aggregates.post(t);
+        metrics.recordPosted(t.getType(), t.getAmount().toPaise(), start);
+    }
+
+    // Counts amount leaving acc against the velocity limits and returns the time it was counted
+    // at, for releaseVelocity. Amounts that are not positive are left for the account to refuse.
+    long limitVelocity(Account acc, Flow flow, Money amount) throws VelocityLimitExceededException {
+        if (amount == null || !amount.isPositive()) return 0;
+        try {
+            return limiter.acquire(acc.getAccountNo(), acc.getCustomerId(), flow, amount.toPaise(), System.currentTimeMillis());
+        } catch (VelocityLimitExceededException e) {
+            metrics.velocityLimit();
+            throw e;
+        }
+    }
+
+    // Takes back a limitVelocity count whose money did not move after all.
+    void releaseVelocity(Account acc, Flow flow, Money amount, long counted) {
+        if (amount == null || !amount.isPositive()) return;
+        limiter.release(acc.getAccountNo(), acc.getCustomerId(), flow, amount.toPaise(), counted);
+    }
+
+    private void record(Operation op, long start, boolean ok) {
+        if (ok) metrics.recordOperation(op, start);
+        else metrics.recordFailure(op, start);
+    }
+
+    // Registers a validated customer and, when type is not null, opens its first account without
+    // waiting for the journal; returns the LSN to wait for.
+    long onboard(Customer c, AccountType type, Money initial) {
+        long lsn = addCustomer(c);
+        if (type != null) lsn = addAccount(newAccount(c.getId(), type, initial), initial, "Initial deposit");
+        return lsn;
+    }
+
+    // Journals the customer and then publishes it; returns the LSN. Both happen under the ID's
+    // lock, so of two registrations of one ID only the one that is kept reaches the journal.
+    private long addCustomer(Customer c) {
+        synchronized (customerLock(c.getId())) {
+            if (customers.exists(c.getId())) {
+                throw new IllegalArgumentException("Customer ID already exists.");
+            }
+            long lsn = journal.appendCustomer(c);
+            customers.add(c);
+            return lsn;
+        }
+    }
+
+    private Object customerLock(String customerId) {
+        return customerLocks[Math.floorMod(customerId.hashCode(), customerLocks.length)];
+    }
+
+    private Account newAccount(String customerId, AccountType type, Money initial) {
+        String accountNo = generateAccountNo();
+        return (type == AccountType.SAVINGS)
+                ? new SavingsAccount(accountNo, customerId, initial)
+                : new CurrentAccount(accountNo, customerId, initial);
+    }
+
+    // The opening and the initial deposit are journaled before the account is published, so no
+    // transaction on it can reach the journal ahead of them and a refused record publishes nothing.
+    private long addAccount(Account account, Money initial, String notes) {
+        long start = System.nanoTime();
+        Transaction deposit = new Transaction(nextTransactionId(), account.getAccountNo(), TransactionType.DEPOSIT, initial, LocalDateTime.now(), notes);
+        journal.appendAccountOpened(account);
+        long lsn = journal.appendTransaction(deposit);
+        accounts.add(account);
+        post(deposit, start);
+        return lsn;
+    }
+
+    void awaitDurable(long lsn) {
+        journal.awaitDurable(lsn);
+    }
+
+    long nextTransactionId() {
+        return transactionIds.nextId();
+    }
+
+    private String generateAccountNo() {
+        String accountNo;
+        do {
+            accountNo = "ACC" + accountSeq.next();
+        } while (shardCount > 1 && ShardMap.shardOf(accountNo, shardCount) != shardIndex);
+        return accountNo;
+    }
+
+    private static Object[] newLocks(int count) {
+        Object[] locks = new Object[count];
+        for (int i = 0; i < count; i++) locks[i] = new Object();
+        return locks;
+    }
+
+    private static int numericSuffix(String id) {
+        int i = id.length();
+        while (i > 0 && Character.isDigit(id.charAt(i - 1))) i--;
+        return i == id.length() ? 0 : Integer.parseInt(id.substring(i));
+    }
+}
@@ -0,0 +1,151 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.InvalidAccountException;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Applies a batch of transfers with each account debited at most once and credited at most once.
+ *
+ * Instructions are grouped by source account and every group is processed in parallel: under
+ * the account's monitor (the same one {@link BankService#transfer} takes) the instructions are
+ * accepted in submission order while the balance above the minimum covers them, and the sum of
+ * the accepted ones is withdrawn in a single step. Credits are then summed per destination and
+ * deposited in one step each, and both legs of each instruction are journaled as one record
+ * right after its credit. A destination that cannot take its sum (the balance would overflow)
+ * gives the debits back to the sources, and its instructions fail without any record; so does
+ * an instruction whose record the journal refuses, which takes its share of the credit back.
+ *
+ * Debits and credits are not netted: incoming credits of the same batch are not counted towards
+ * a source's balance, so the outcome of an instruction never depends on another group's timing,
+ * and an account that is both a source and a destination is locked once for each role. Batches
+ * are settlement runs such as payroll, so they do not count against the velocity limits.
+ */
+public class BatchTransferEngine {
+
+    private final BankService bank;
+
+    BatchTransferEngine(BankService bank) {
+        this.bank = bank;
+    }
+
+    public BatchTransferResult execute(List<TransferInstruction> instructions) {
+        int n = instructions.size();
+        Account[] from = new Account[n];
+        Account[] to = new Account[n];
+        Exception[] failures = new Exception[n];
+        boolean[] accepted = new boolean[n];
+
+        Map<Account, List<Integer>> bySource = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            TransferInstruction ins = instructions.get(i);
+            try {
+                from[i] = bank.findAccount(ins.getFromAccountNo());
+                to[i] = bank.findAccount(ins.getToAccountNo());
+                if (ins.getAmount() == null || !ins.getAmount().isPositive()) {
+                    throw new IllegalArgumentException("Transfer amount must be positive");
+                }
+                if (from[i] == to[i]) {
+                    throw new IllegalArgumentException("Cannot transfer to the same account");
+                }
+                bySource.computeIfAbsent(from[i], k -> new ArrayList<>()).add(i);
+            } catch (InvalidAccountException | IllegalArgumentException e) {
+                failures[i] = e;
+            }
+        }
+
+        bySource.entrySet().parallelStream()
+                .forEach(e -> debit(e.getKey(), e.getValue(), instructions, accepted, failures));
+
+        Map<Account, List<Integer>> byDestination = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            if (accepted[i]) byDestination.computeIfAbsent(to[i], k -> new ArrayList<>()).add(i);
+        }
+        LocalDateTime now = LocalDateTime.now();
+        long lsn = byDestination.entrySet().parallelStream()
+                .mapToLong(e -> credit(e.getKey(), e.getValue(), instructions, from, accepted, failures, now))
+                .max().orElse(0);
+
+        List<BatchTransferResult.Outcome> outcomes = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            outcomes.add(new BatchTransferResult.Outcome(i, instructions.get(i), failures[i]));
+        }
+        bank.awaitDurable(lsn);
+        return new BatchTransferResult(outcomes);
+    }
+
+    // Deposits the sum of the debited instructions into the destination and journals their legs;
+    // returns the last LSN. An instruction that cannot be credited or journaled gives the money
+    // back to its source and fails.
+    private long credit(Account account, List<Integer> indexes, List<TransferInstruction> instructions, Account[] from,
+                        boolean[] accepted, Exception[] failures, LocalDateTime now) {
+        try {
+            long total = 0;
+            for (int i : indexes) total = Math.addExact(total, instructions.get(i).getAmount().toPaise());
+            account.deposit(Money.ofPaise(total));
+        } catch (ArithmeticException overflow) {
+            for (int i : indexes) {
+                giveBack(i, instructions, from, accepted, failures,
+                        new IllegalArgumentException("Transfer would overflow the balance of " + account.getAccountNo()));
+            }
+            return 0;
+        }
+        long lsn = 0;
+        for (int i : indexes) {
+            Money amount = instructions.get(i).getAmount();
+            try {
+                lsn = bank.recordAll(List.of(
+                        new Transaction(bank.nextTransactionId(), from[i].getAccountNo(), TransactionType.TRANSFER_OUT, amount, now, "Transfer to " + account.getAccountNo()),
+                        new Transaction(bank.nextTransactionId(), account.getAccountNo(), TransactionType.TRANSFER_IN, amount, now, "Transfer from " + from[i].getAccountNo())));
+            } catch (RuntimeException e) {
+                account.reverseDeposit(amount);
+                giveBack(i, instructions, from, accepted, failures, e);
+            }
+        }
+        return lsn;
+    }
+
+    private static void giveBack(int i, List<TransferInstruction> instructions, Account[] from,
+                                 boolean[] accepted, Exception[] failures, Exception reason) {
+        from[i].deposit(instructions.get(i).getAmount());
+        accepted[i] = false;
+        failures[i] = reason;
+    }
+
+    private static void debit(Account account, List<Integer> indexes, List<TransferInstruction> instructions,
+                              boolean[] accepted, Exception[] failures) {
+        synchronized (account) {
+            while (true) {
+                long available = account.getBalancePaise() - account.getMinimumBalance().toPaise();
+                long total = 0;
+                for (int i : indexes) {
+                    long amount = instructions.get(i).getAmount().toPaise();
+                    accepted[i] = amount <= available - total;
+                    if (accepted[i]) total += amount;
+                }
+                if (total == 0) break;
+                try {
+                    account.withdraw(Money.ofPaise(total));
+                    break;
+                } catch (InsufficientBalanceException raced) {
+                    // a concurrent withdrawal moved the balance; decide again against the new one
+                    for (int i : indexes) accepted[i] = false;
+                }
+            }
+            for (int i : indexes) {
+                if (!accepted[i]) {
+                    failures[i] = new InsufficientBalanceException("Insufficient balance or minimum balance constraint violated");
+                }
+            }
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,46 @@
+package com.hdfc.minibank.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class BatchTransferResult {
+
+    public static class Outcome {
+        private final int index;
+        private final TransferInstruction instruction;
+        private final Exception failure;
+
+        Outcome(int index, TransferInstruction instruction, Exception failure) {
+            this.index = index;
+            this.instruction = instruction;
+            this.failure = failure;
+        }
+
+        // Position of the instruction in the submitted batch.
+        public int getIndex() { return index; }
+        public TransferInstruction getInstruction() { return instruction; }
+        public boolean isSuccess() { return failure == null; }
+
+        // InsufficientBalanceException, InvalidAccountException or IllegalArgumentException; null on success.
+        public Exception getFailure() { return failure; }
+    }
+
+    private final List<Outcome> outcomes;
+    private final List<Outcome> failed = new ArrayList<>();
+    private final int succeeded;
+
+    BatchTransferResult(List<Outcome> outcomes) {
+        this.outcomes = Collections.unmodifiableList(outcomes);
+        for (Outcome o : outcomes) {
+            if (!o.isSuccess()) failed.add(o);
+        }
+        this.succeeded = outcomes.size() - failed.size();
+    }
+
+    // One outcome per instruction, in submission order.
+    public List<Outcome> getOutcomes() { return outcomes; }
+    public List<Outcome> getFailed() { return Collections.unmodifiableList(failed); }
+    public int getSucceededCount() { return succeeded; }
+    public int getFailedCount() { return failed.size(); }
+}
@@ -0,0 +1,295 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads customers, and optionally a first account for each, from a CSV file of rows
+ *
+ *   customerId,name,email,phone,dob[,accountType,initialDeposit]
+ *
+ * as a staged pipeline connected by bounded queues, so memory stays flat for any file size:
+ * the calling thread reads lines into chunks, one worker per core parses and validates the
+ * chunks, and a single inserter registers the valid rows a chunk at a time and waits for the
+ * journal once per chunk. A bad row is reported with its line number and the load goes on.
+ *
+ * The inserter takes the validated chunks back in file order and checks customer IDs against
+ * the ones it has seen, so of two rows with the same ID the first in the file is imported and
+ * the later one reported, however the chunks were spread over the workers. It still relies on
+ * the repository's atomic putIfAbsent for IDs registered by someone else in the meantime.
+ */
+class BulkOnboarding {
+
+    static final int CHUNK_ROWS = 1000;
+    static final int MAX_REPORTED_ERRORS = 100;
+
+    private static final Chunk END_OF_INPUT = new Chunk(-1, 0, new ArrayList<>());
+    private static final ValidRows END_OF_ROWS = new ValidRows(-1, new ArrayList<>());
+
+    private final BankService bank;
+    private final Writer errorReport;
+    private final Set<String> seenIds = new HashSet<>(); // inserter only
+    private final LongAdder errorCount = new LongAdder();
+    private final PriorityQueue<BulkOnboardingResult.RowError> firstErrors =
+            new PriorityQueue<>(Comparator.comparingLong(BulkOnboardingResult.RowError::getLine).reversed());
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private long customersImported;
+    private long accountsOpened;
+
+    BulkOnboarding(BankService bank, Writer errorReport) {
+        this.bank = bank;
+        this.errorReport = errorReport;
+    }
+
+    BulkOnboardingResult run(BufferedReader in) throws IOException {
+        int workers = Runtime.getRuntime().availableProcessors();
+        BlockingQueue<Chunk> lines = new ArrayBlockingQueue<>(workers * 2);
+        BlockingQueue<ValidRows> valid = new ArrayBlockingQueue<>(workers * 2);
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers + 1, r -> {
+            Thread t = new Thread(r, "onboarding-" + threadNo.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        long rowsRead = 0;
+        try {
+            Future<?> inserter = pool.submit(stage(pool, () -> insert(valid)));
+            List<Future<?>> validators = new ArrayList<>(workers);
+            for (int i = 0; i < workers; i++) {
+                validators.add(pool.submit(stage(pool, () -> validate(lines, valid))));
+            }
+
+            long lineNo = 0;
+            long seq = 0;
+            Chunk chunk = new Chunk(seq, 1, new ArrayList<>(CHUNK_ROWS));
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#") || (lineNo == 1 && trimmed.toLowerCase(Locale.ROOT).startsWith("customerid"))) {
+                    trimmed = null; // keeps line numbers aligned
+                } else {
+                    rowsRead++;
+                }
+                chunk.lines.add(trimmed);
+                if (chunk.lines.size() == CHUNK_ROWS) {
+                    offer(lines, chunk);
+                    chunk = new Chunk(++seq, lineNo + 1, new ArrayList<>(CHUNK_ROWS));
+                }
+            }
+            if (!chunk.lines.isEmpty()) offer(lines, chunk);
+            for (int i = 0; i < workers; i++) offer(lines, END_OF_INPUT);
+            for (Future<?> f : validators) f.get();
+            checkFailure();
+            offer(valid, END_OF_ROWS);
+            inserter.get();
+            checkFailure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during bulk onboarding", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Bulk onboarding failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<BulkOnboardingResult.RowError> errors;
+        synchronized (firstErrors) {
+            errors = new ArrayList<>(firstErrors);
+        }
+        errors.sort(Comparator.comparingLong(BulkOnboardingResult.RowError::getLine));
+        return new BulkOnboardingResult(rowsRead, customersImported, accountsOpened, errorCount.sum(), errors);
+    }
+
+    private interface Stage {
+        void run() throws InterruptedException;
+    }
+
+    // A stage that fails stops the whole pipeline, so no other stage stays blocked on a queue.
+    private Runnable stage(ExecutorService pool, Stage body) {
+        return () -> {
+            try {
+                body.run();
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+                pool.shutdownNow();
+            }
+        };
+    }
+
+    private <T> void offer(BlockingQueue<T> queue, T item) throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            checkFailure();
+        }
+    }
+
+    private void checkFailure() {
+        Throwable t = failure.get();
+        if (t instanceof RuntimeException) throw (RuntimeException) t;
+        if (t != null) throw new IllegalStateException("Bulk onboarding failed", t);
+    }
+
+    // --- parse and validate (one per core) -------------------------------------------------
+
+    private void validate(BlockingQueue<Chunk> lines, BlockingQueue<ValidRows> valid) throws InterruptedException {
+        while (true) {
+            Chunk chunk = lines.take();
+            if (chunk == END_OF_INPUT) return;
+            List<Row> rows = new ArrayList<>(chunk.lines.size());
+            for (int i = 0; i < chunk.lines.size(); i++) {
+                String line = chunk.lines.get(i);
+                if (line == null) continue;
+                long lineNo = chunk.firstLine + i;
+                try {
+                    rows.add(parse(line, lineNo));
+                } catch (IllegalArgumentException | DateTimeParseException | ArithmeticException e) {
+                    error(lineNo, e instanceof DateTimeParseException ? "Invalid date of birth." : e.getMessage());
+                }
+            }
+            valid.put(new ValidRows(chunk.seq, rows)); // even when empty, so the inserter sees every chunk
+        }
+    }
+
+    private Row parse(String line, long lineNo) {
+        String[] f = line.split(",", -1);
+        if (f.length != 5 && f.length != 7) {
+            throw new IllegalArgumentException("Expected customerId,name,email,phone,dob[,accountType,initialDeposit]");
+        }
+        Customer c = new Customer(f[0].trim().toUpperCase(Locale.ROOT), f[1].trim(), f[2].trim(), f[3].trim(), LocalDate.parse(f[4].trim()));
+        BankService.validateCustomer(c);
+        AccountType type = null;
+        Money initial = null;
+        if (f.length == 7) {
+            try {
+                type = AccountType.valueOf(f[5].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid account type: " + f[5].trim());
+            }
+            initial = Money.parse(f[6]);
+            if (initial.toPaise() < 0) throw new IllegalArgumentException("Initial deposit must not be negative.");
+        }
+        if (bank.getCustomers().exists(c.getId())) {
+            throw new IllegalArgumentException("Customer ID already exists.");
+        }
+        return new Row(lineNo, c, type, initial);
+    }
+
+    // --- insert (single thread) ------------------------------------------------------------
+
+    // Chunks arrive in whatever order the workers finish them and are inserted in file order.
+    private void insert(BlockingQueue<ValidRows> valid) throws InterruptedException {
+        Map<Long, ValidRows> early = new HashMap<>();
+        long next = 0;
+        while (true) {
+            ValidRows taken = valid.take();
+            if (taken == END_OF_ROWS) return;
+            early.put(taken.seq, taken);
+            ValidRows rows;
+            while ((rows = early.remove(next)) != null) {
+                insert(rows.rows);
+                next++;
+            }
+        }
+    }
+
+    private void insert(List<Row> rows) {
+        long lsn = 0;
+        for (Row row : rows) {
+            if (!seenIds.add(row.customer.getId())) {
+                error(row.line, "Duplicate customer ID in file: " + row.customer.getId());
+                continue;
+            }
+            try {
+                lsn = Math.max(lsn, bank.onboard(row.customer, row.type, row.initial));
+                customersImported++;
+                if (row.type != null) accountsOpened++;
+            } catch (IllegalArgumentException e) {
+                error(row.line, e.getMessage());
+            }
+        }
+        bank.awaitDurable(lsn);
+    }
+
+    // --- errors ----------------------------------------------------------------------------
+
+    private void error(long line, String message) {
+        errorCount.increment();
+        BulkOnboardingResult.RowError error = new BulkOnboardingResult.RowError(line, message);
+        synchronized (firstErrors) {
+            firstErrors.add(error);
+            if (firstErrors.size() > MAX_REPORTED_ERRORS) firstErrors.poll();
+        }
+        if (errorReport != null) {
+            synchronized (errorReport) {
+                try {
+                    errorReport.write(line + "," + message + System.lineSeparator());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not write the error report", e);
+                }
+            }
+        }
+    }
+
+    private static final class Chunk {
+        private final long seq;
+        private final long firstLine;
+        private final List<String> lines; // null for lines that are not rows
+
+        private Chunk(long seq, long firstLine, List<String> lines) {
+            this.seq = seq;
+            this.firstLine = firstLine;
+            this.lines = lines;
+        }
+    }
+
+    private static final class ValidRows {
+        private final long seq; // of the chunk the rows came from
+        private final List<Row> rows;
+
+        private ValidRows(long seq, List<Row> rows) {
+            this.seq = seq;
+            this.rows = rows;
+        }
+    }
+
+    private static final class Row {
+        private final long line;
+        private final Customer customer;
+        private final AccountType type; // null when no account is to be opened
+        private final Money initial;
+
+        private Row(long line, Customer customer, AccountType type, Money initial) {
+            this.line = line;
+            this.customer = customer;
+            this.type = type;
+            this.initial = initial;
+        }
+    }
+}
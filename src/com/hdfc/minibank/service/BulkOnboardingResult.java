@@ -0,0 +1,48 @@
+package com.hdfc.minibank.service;
+
+import java.util.Collections;
+import java.util.List;
+
+public class BulkOnboardingResult {
+
+    public static class RowError {
+        private final long line;
+        private final String message;
+
+        RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        // 1-based line number in the input file.
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+
+        @Override
+        public String toString() {
+            return "line " + line + ": " + message;
+        }
+    }
+
+    private final long rowsRead;
+    private final long customersImported;
+    private final long accountsOpened;
+    private final long errorCount;
+    private final List<RowError> errors;
+
+    BulkOnboardingResult(long rowsRead, long customersImported, long accountsOpened, long errorCount, List<RowError> errors) {
+        this.rowsRead = rowsRead;
+        this.customersImported = customersImported;
+        this.accountsOpened = accountsOpened;
+        this.errorCount = errorCount;
+        this.errors = Collections.unmodifiableList(errors);
+    }
+
+    public long getRowsRead() { return rowsRead; }
+    public long getCustomersImported() { return customersImported; }
+    public long getAccountsOpened() { return accountsOpened; }
+    public long getErrorCount() { return errorCount; }
+
+    // The first errors in line order, at most BulkOnboarding.MAX_REPORTED_ERRORS; the error report file has all of them.
+    public List<RowError> getErrors() { return errors; }
+}
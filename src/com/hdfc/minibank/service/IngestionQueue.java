@@ -0,0 +1,349 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.limits.VelocityPolicy.Flow;
+import com.hdfc.minibank.metrics.Operation;
+import com.hdfc.minibank.shard.ShardMap;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Ingestion mode for deposits and withdrawals under bursty load.
+ *
+ * Accounts are split into partitions by a hash of the account number. Each partition has a
+ * bounded multi-producer, single-consumer ring buffer and one writer thread, which drains up
+ * to {@link #MAX_BATCH} requests at a time and applies them as a micro-batch:
+ *
+ *   - requests are grouped by account, and each account is settled once under its monitor
+ *     (the one transfers take), in arrival order; a net withdrawal is taken from the balance
+ *     at once, so nothing else can spend it;
+ *   - the posted transactions are appended to the journal as one record, and only then are
+ *     the net deposits made; the writer waits for a single sync before completing the
+ *     batch's futures.
+ *
+ * An account that cannot be settled (its balance would overflow) fails only its own requests.
+ * If the journal refuses the record, the withdrawn amounts are put back and the whole batch
+ * fails with nothing applied; once the record is written, the batch is never failed.
+ *
+ * Withdrawals count against the velocity limits when they are submitted, so a refused one
+ * fails at once without taking a slot.
+ *
+ * A producer that finds its partition's ring full backs off until the writer makes room, so a
+ * burst slows callers down instead of growing the heap.
+ */
+class IngestionQueue implements AutoCloseable {
+
+    static final int MAX_BATCH = 256;
+    private static final long MAX_BACKOFF_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final BankService bank;
+    private final Partition[] partitions;
+    private volatile boolean closed;
+
+    IngestionQueue(BankService bank, int partitionCount, int capacity) {
+        this.bank = bank;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(capacity);
+            Thread writer = new Thread(partitions[i]::drain, "ingest-" + i);
+            writer.setDaemon(true);
+            partitions[i].writer = writer;
+            writer.start();
+        }
+    }
+
+    CompletableFuture<Transaction> submit(Account account, TransactionType type, Money amount) {
+        if (amount == null || !amount.isPositive()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException(
+                    (type == TransactionType.DEPOSIT ? "Deposit" : "Withdrawal") + " amount must be positive"));
+        }
+        Request request = new Request(account, type, amount);
+        if (type == TransactionType.WITHDRAWAL) {
+            try {
+                request.counted = bank.limitVelocity(account, Flow.WITHDRAWAL, amount);
+            } catch (VelocityLimitExceededException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        Partition p = partitions[ShardMap.shardOf(account.getAccountNo(), partitions.length)];
+        // counted before checking closed, so the writer cannot finish while this request is on its way
+        p.producers.incrementAndGet();
+        try {
+            if (closed) {
+                release(request);
+                return CompletableFuture.failedFuture(new IllegalStateException("Ingestion queue is closed"));
+            }
+            long backoff = 1_000;
+            while (!p.ring.offer(request)) {
+                bank.getMetrics().ingestionBackpressure();
+                p.wakeWriter();
+                LockSupport.parkNanos(backoff);
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_NANOS);
+            }
+        } finally {
+            p.producers.decrementAndGet();
+        }
+        p.wakeWriter();
+        return request.future;
+    }
+
+    // Stops accepting requests and waits for the writers to finish the ones already queued.
+    @Override
+    public void close() {
+        closed = true;
+        for (Partition p : partitions) {
+            LockSupport.unpark(p.writer);
+        }
+        for (Partition p : partitions) {
+            try {
+                p.writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private final class Partition {
+        private final Ring ring;
+        private final AtomicInteger producers = new AtomicInteger();
+        private final List<Request> batch = new ArrayList<>(MAX_BATCH);
+        private Thread writer;
+        private volatile boolean sleeping;
+
+        private Partition(int capacity) {
+            this.ring = new Ring(capacity);
+        }
+
+        private void wakeWriter() {
+            if (sleeping) LockSupport.unpark(writer);
+        }
+
+        private void drain() {
+            while (true) {
+                Request r;
+                while (batch.size() < MAX_BATCH && (r = ring.poll()) != null) {
+                    batch.add(r);
+                }
+                if (!batch.isEmpty()) {
+                    apply(batch);
+                    batch.clear();
+                    continue;
+                }
+                if (closed) {
+                    if (producers.get() == 0 && ring.isEmpty()) return;
+                    Thread.onSpinWait(); // a producer is still publishing
+                    continue;
+                }
+                sleeping = true;
+                if (ring.isEmpty() && !closed) LockSupport.park(this);
+                sleeping = false;
+            }
+        }
+    }
+
+    private void apply(List<Request> batch) {
+        long start = System.nanoTime();
+        boolean ok = false;
+        try {
+            Map<Account, List<Request>> byAccount = new LinkedHashMap<>();
+            for (Request r : batch) {
+                byAccount.computeIfAbsent(r.account, k -> new ArrayList<>()).add(r);
+            }
+            Map<Account, Long> settled = new LinkedHashMap<>();
+            for (Map.Entry<Account, List<Request>> e : byAccount.entrySet()) {
+                try {
+                    settled.put(e.getKey(), settle(e.getKey(), e.getValue()));
+                } catch (RuntimeException failure) {
+                    // nothing was applied to this account
+                    for (Request r : e.getValue()) {
+                        r.accepted = false;
+                        r.failure = failure;
+                    }
+                }
+            }
+
+            List<Transaction> posted = new ArrayList<>(batch.size());
+            long lsn;
+            try {
+                LocalDateTime now = LocalDateTime.now();
+                for (Request r : batch) {
+                    if (r.accepted) {
+                        r.transaction = new Transaction(bank.nextTransactionId(), r.account.getAccountNo(), r.type, r.amount, now,
+                                r.type == TransactionType.DEPOSIT ? "Deposit" : "Withdrawal");
+                        posted.add(r.transaction);
+                    }
+                }
+                lsn = bank.recordAll(posted);
+            } catch (RuntimeException failure) {
+                // nothing reached the journal, so put the withdrawn amounts back
+                for (Map.Entry<Account, Long> e : settled.entrySet()) {
+                    if (e.getValue() < 0) e.getKey().deposit(Money.ofPaise(-e.getValue()));
+                }
+                for (Request r : batch) {
+                    release(r);
+                    r.future.completeExceptionally(r.failure != null ? r.failure : failure);
+                }
+                return;
+            }
+            for (Map.Entry<Account, Long> e : settled.entrySet()) {
+                if (e.getValue() > 0) e.getKey().deposit(Money.ofPaise(e.getValue()));
+            }
+            try {
+                bank.awaitDurable(lsn);
+                ok = true;
+            } catch (RuntimeException e) {
+                // applied and journaled, so the batch stands; only the wait for the sync failed
+                System.err.println("Ingestion batch of " + posted.size() + " not confirmed durable: " + e);
+            }
+
+            for (Request r : batch) {
+                if (r.accepted) {
+                    r.future.complete(r.transaction);
+                } else if (r.failure != null) {
+                    release(r);
+                    r.future.completeExceptionally(r.failure);
+                } else {
+                    release(r);
+                    bank.getMetrics().insufficientBalance();
+                    r.future.completeExceptionally(new InsufficientBalanceException("Insufficient balance or minimum balance constraint violated"));
+                }
+            }
+        } finally {
+            if (ok) bank.getMetrics().recordOperation(Operation.INGEST_BATCH, start);
+            else bank.getMetrics().recordFailure(Operation.INGEST_BATCH, start);
+        }
+    }
+
+    // Takes back the velocity count of a withdrawal that did not go through.
+    private void release(Request r) {
+        if (r.type == TransactionType.WITHDRAWAL) bank.releaseVelocity(r.account, Flow.WITHDRAWAL, r.amount, r.counted);
+    }
+
+    // Accepts the account's requests in order while the balance above the minimum covers each
+    // withdrawal and returns the net change. A net withdrawal is taken here; a net deposit is
+    // left for the caller to make once the transactions are journaled, after checking that the
+    // balance can hold it.
+    private static long settle(Account account, List<Request> requests) {
+        synchronized (account) {
+            while (true) {
+                long available = account.getBalancePaise() - account.getMinimumBalance().toPaise();
+                long net = 0;
+                for (Request r : requests) {
+                    long amount = r.amount.toPaise();
+                    if (r.type == TransactionType.DEPOSIT) {
+                        r.accepted = true;
+                        net += amount;
+                        if (net < 0) throw overflow(account);
+                    } else {
+                        r.accepted = amount <= available + net;
+                        if (r.accepted) net -= amount;
+                    }
+                }
+                if (net >= 0) {
+                    if (net > Long.MAX_VALUE - account.getBalancePaise()) throw overflow(account);
+                    return net;
+                }
+                try {
+                    account.withdraw(Money.ofPaise(-net));
+                    return net;
+                } catch (InsufficientBalanceException raced) {
+                    // a concurrent withdrawal outside the queue moved the balance; decide again
+                }
+            }
+        }
+    }
+
+    private static IllegalArgumentException overflow(Account account) {
+        return new IllegalArgumentException("Deposits would overflow the balance of " + account.getAccountNo());
+    }
+
+    private static final class Request {
+        private final Account account;
+        private final TransactionType type;
+        private final Money amount;
+        private final CompletableFuture<Transaction> future = new CompletableFuture<>();
+        private long counted; // when a withdrawal was counted against the velocity limits
+        private boolean accepted;
+        private RuntimeException failure; // why the account could not be settled
+        private Transaction transaction;
+
+        private Request(Account account, TransactionType type, Money amount) {
+            this.account = account;
+            this.type = type;
+            this.amount = amount;
+        }
+    }
+
+    /**
+     * Bounded ring buffer for many producers and one consumer. Producers claim a slot by CAS on
+     * the tail and publish the element with a release store; the consumer reads slots in order
+     * with acquire loads and frees each slot before moving the head past it, so a producer that
+     * sees room also sees its slot empty.
+     */
+    static final class Ring {
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+        private static final VarHandle HEAD;
+        private static final VarHandle TAIL;
+        static {
+            try {
+                HEAD = MethodHandles.lookup().findVarHandle(Ring.class, "head", long.class);
+                TAIL = MethodHandles.lookup().findVarHandle(Ring.class, "tail", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final Object[] slots;
+        private final int mask;
+        private volatile long head; // next slot to read, written by the consumer only
+        private volatile long tail; // next slot to claim
+
+        Ring(int capacity) {
+            int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+            this.slots = new Object[size];
+            this.mask = size - 1;
+        }
+
+        boolean offer(Object e) {
+            long t;
+            do {
+                t = tail;
+                if (t - (long) HEAD.getAcquire(this) >= slots.length) return false;
+            } while (!TAIL.compareAndSet(this, t, t + 1));
+            SLOTS.setRelease(slots, (int) (t & mask), e);
+            return true;
+        }
+
+        @SuppressWarnings("unchecked")
+        <E> E poll() {
+            long h = head;
+            int i = (int) (h & mask);
+            Object e = SLOTS.getAcquire(slots, i);
+            if (e == null) return null;
+            SLOTS.setOpaque(slots, i, null);
+            HEAD.setRelease(this, h + 1);
+            return (E) e;
+        }
+
+        // Claimed but unpublished slots count as not empty.
+        boolean isEmpty() {
+            return head == tail;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.repository.HistoryCursor;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * End-of-day job posting one day of interest to every savings account.
+ *
+ * Accounts are split into partitions by a hash of the account number and the partitions are
+ * processed in parallel on the common fork/join pool. Interest is credited with the lock-free
+ * {@link Account#deposit}, so live deposits and withdrawals never wait on the job. A partition
+ * is checkpointed only after its postings are durable in the journal; when a run is resumed,
+ * unfinished partitions skip accounts that already received interest for the business date.
+ */
+public class InterestAccrualJob {
+
+    public static final int DEFAULT_PARTITIONS = 1024;
+
+    public static class Result {
+        private final LocalDate businessDate;
+        private final long accountsCredited;
+        private final Money totalInterest;
+        private final int partitionsSkipped;
+        private final boolean alreadyComplete;
+
+        Result(LocalDate businessDate, long accountsCredited, Money totalInterest, int partitionsSkipped, boolean alreadyComplete) {
+            this.businessDate = businessDate;
+            this.accountsCredited = accountsCredited;
+            this.totalInterest = totalInterest;
+            this.partitionsSkipped = partitionsSkipped;
+            this.alreadyComplete = alreadyComplete;
+        }
+
+        public LocalDate getBusinessDate() { return businessDate; }
+        public long getAccountsCredited() { return accountsCredited; }
+        public Money getTotalInterest() { return totalInterest; }
+        // Partitions finished by an earlier, interrupted run of the same business date.
+        public int getPartitionsSkipped() { return partitionsSkipped; }
+        public boolean isAlreadyComplete() { return alreadyComplete; }
+    }
+
+    private final BankService bank;
+    private final Path checkpointDir;
+    private final int partitions;
+
+    public InterestAccrualJob(BankService bank, Path checkpointDir) {
+        this(bank, checkpointDir, DEFAULT_PARTITIONS);
+    }
+
+    public InterestAccrualJob(BankService bank, Path checkpointDir, int partitions) {
+        if (partitions <= 0) throw new IllegalArgumentException("Partition count must be positive");
+        this.bank = bank;
+        this.checkpointDir = checkpointDir;
+        this.partitions = partitions;
+    }
+
+    public Result run(LocalDate businessDate) {
+        try (InterestCheckpoint checkpoint = InterestCheckpoint.open(checkpointDir, businessDate, partitions)) {
+            if (checkpoint.isComplete()) {
+                return new Result(businessDate, 0, Money.ZERO, checkpoint.getPartitions(), true);
+            }
+            int skipped = checkpoint.doneCount();
+            List<List<Account>> byPartition = partition(businessDate, checkpoint.getPartitions());
+            String notes = "Interest for " + businessDate;
+            LongAdder credited = new LongAdder();
+            AtomicLong totalPaise = new AtomicLong();
+
+            IntStream.range(0, byPartition.size()).parallel()
+                    .filter(p -> !checkpoint.isDone(p))
+                    .forEach(p -> {
+                        long lsn = 0;
+                        long partitionTotal = 0;
+                        for (Account acc : byPartition.get(p)) {
+                            if (checkpoint.isResumed() && alreadyPosted(acc, checkpoint.getStartedAt(), notes)) continue;
+                            Money interest = acc.calculateDailyInterest();
+                            if (!interest.isPositive()) continue;
+                            acc.deposit(interest);
+                            try {
+                                lsn = bank.record(new Transaction(bank.nextTransactionId(), acc.getAccountNo(), TransactionType.INTEREST, interest, LocalDateTime.now(), notes));
+                            } catch (RuntimeException e) {
+                                acc.reverseDeposit(interest);
+                                throw e;
+                            }
+                            partitionTotal += interest.toPaise();
+                            credited.increment();
+                        }
+                        bank.awaitDurable(lsn);
+                        checkpoint.markDone(p);
+                        totalPaise.addAndGet(partitionTotal);
+                    });
+
+            checkpoint.markComplete();
+            return new Result(businessDate, credited.sum(), Money.ofPaise(totalPaise.get()), skipped, false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Interest run for " + businessDate + " failed", e);
+        }
+    }
+
+    // Savings accounts opened by the end of the business date, grouped by partition.
+    private List<List<Account>> partition(LocalDate businessDate, int count) {
+        LocalDateTime cutoff = businessDate.plusDays(1).atStartOfDay();
+        List<List<Account>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) result.add(new ArrayList<>());
+        for (Account acc : bank.getAccounts().findAll()) {
+            if (acc.getAccountType() == AccountType.SAVINGS && acc.getCreatedAt().isBefore(cutoff)) {
+                result.get(Math.floorMod(acc.getAccountNo().hashCode(), count)).add(acc);
+            }
+        }
+        return result;
+    }
+
+    // Walks only the rows since the interrupted run started, without materialising them.
+    private boolean alreadyPosted(Account acc, LocalDateTime since, String notes) {
+        HistoryCursor rows = bank.getTransactions().openHistory(acc.getAccountNo(), since, null);
+        while (rows.next()) {
+            if (rows.type() == TransactionType.INTEREST && notes.equals(rows.notes())) return true;
+        }
+        return false;
+    }
+}
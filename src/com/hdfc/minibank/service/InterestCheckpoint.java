@@ -0,0 +1,113 @@
+package com.hdfc.minibank.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Progress of one interest run, as an append-only text file:
+ *
+ *   started 2026-10-18T23:55:01.123 partitions 1024
+ *   done 17
+ *   done 3
+ *   ...
+ *   complete
+ *
+ * Every line is forced to disk before the next partition is reported done. A torn last line
+ * is dropped when the file is reopened.
+ */
+final class InterestCheckpoint implements AutoCloseable {
+
+    private final FileChannel channel;
+    private final BitSet done = new BitSet();
+    private final LocalDateTime startedAt;
+    private final int partitions;
+    private final boolean resumed;
+    private boolean complete;
+
+    private InterestCheckpoint(FileChannel channel, LocalDateTime startedAt, int partitions, boolean resumed) {
+        this.channel = channel;
+        this.startedAt = startedAt;
+        this.partitions = partitions;
+        this.resumed = resumed;
+    }
+
+    static InterestCheckpoint open(Path dir, LocalDate businessDate, int partitions) throws IOException {
+        Files.createDirectories(dir);
+        Path file = dir.resolve("interest-" + businessDate + ".ckpt");
+        if (Files.exists(file)) {
+            // a crash can leave the last line half written; only lines ending in a newline count
+            byte[] bytes = Files.readAllBytes(file);
+            int intact = bytes.length;
+            while (intact > 0 && bytes[intact - 1] != '\n') intact--;
+            List<String> lines = new String(bytes, 0, intact, StandardCharsets.UTF_8).lines().collect(Collectors.toList());
+            if (!lines.isEmpty()) {
+                String[] header = lines.get(0).split(" ");
+                FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE);
+                channel.truncate(intact);
+                channel.position(intact);
+                InterestCheckpoint cp = new InterestCheckpoint(channel,
+                        LocalDateTime.parse(header[1]), Integer.parseInt(header[3]), true);
+                for (String line : lines.subList(1, lines.size())) {
+                    if (line.startsWith("done ")) cp.done.set(Integer.parseInt(line.substring(5).trim()));
+                    else if (line.equals("complete")) cp.complete = true;
+                }
+                return cp;
+            }
+        }
+        InterestCheckpoint cp = new InterestCheckpoint(
+                FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING),
+                LocalDateTime.now(), partitions, false);
+        cp.append("started " + cp.startedAt + " partitions " + partitions);
+        return cp;
+    }
+
+    LocalDateTime getStartedAt() { return startedAt; }
+    // The partition count of the original run wins over the requested one when resuming.
+    int getPartitions() { return partitions; }
+    boolean isResumed() { return resumed; }
+    boolean isComplete() { return complete; }
+
+    synchronized boolean isDone(int partition) {
+        return done.get(partition);
+    }
+
+    synchronized int doneCount() {
+        return done.cardinality();
+    }
+
+    synchronized void markDone(int partition) {
+        append("done " + partition);
+        done.set(partition);
+    }
+
+    synchronized void markComplete() {
+        append("complete");
+        complete = true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void append(String line) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) channel.write(buf);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write interest checkpoint", e);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.hdfc.minibank.service;
+
+public enum StatementFormat {
+    // id,timestamp,type,amount,notes with a header line; timestamps as yyyy-MM-dd HH:mm:ss
+    CSV("csv"),
+    // see StatementWriter for the layout
+    BINARY("bin");
+
+    private final String extension;
+
+    StatementFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+}
@@ -0,0 +1,234 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.repository.HistoryCursor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Writes an account statement straight from a {@link HistoryCursor} to a channel through one
+ * reusable buffer. Dates and amounts are formatted by hand into the buffer, so apart from the
+ * odd non-ASCII note no objects are created per row and memory use does not depend on the
+ * length of the history. An instance is not thread-safe but can be reused for any number of
+ * statements; {@link BankService} keeps one per thread.
+ *
+ * The binary format is big-endian: int magic "HDS1", the account number, then one record per
+ * transaction of [byte type ordinal + 1][long id][long amount in paise][long epoch millis]
+ * [notes], and finally a zero byte and the long row count. Strings are [short length][UTF-8
+ * bytes] with length -1 for null.
+ */
+public final class StatementWriter {
+
+    public static final int BINARY_MAGIC = 0x48445331; // "HDS1"
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_ROW_SIZE = 128; // everything but the notes
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+    private static final byte[] CSV_HEADER = "id,timestamp,type,amount,notes\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[][] TYPE_NAMES = new byte[TransactionType.values().length][];
+
+    static {
+        for (TransactionType t : TransactionType.values()) {
+            TYPE_NAMES[t.ordinal()] = t.name().getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    private final ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE);
+    private final byte[] date = new byte[10]; // yyyy-MM-dd of cachedDay
+    private long cachedDay = Long.MIN_VALUE;
+    private WritableByteChannel out;
+
+    // Returns the number of transactions written.
+    public long write(String accountNo, HistoryCursor cursor, StatementFormat format, WritableByteChannel out) throws IOException {
+        this.out = out;
+        buf.clear();
+        try {
+            long rows = format == StatementFormat.CSV ? writeCsv(cursor) : writeBinary(accountNo, cursor);
+            flush();
+            return rows;
+        } finally {
+            this.out = null;
+        }
+    }
+
+    private long writeCsv(HistoryCursor cursor) throws IOException {
+        buf.put(CSV_HEADER);
+        long rows = 0;
+        while (cursor.next()) {
+            ensure(MAX_ROW_SIZE);
+            putDecimal(cursor.id());
+            buf.put((byte) ',');
+            putTimestamp(cursor.timestampMillis());
+            buf.put((byte) ',');
+            buf.put(TYPE_NAMES[cursor.type().ordinal()]);
+            buf.put((byte) ',');
+            putAmount(cursor.amountPaise());
+            buf.put((byte) ',');
+            String notes = cursor.notes();
+            if (notes != null) putCsvField(notes);
+            buf.put((byte) '\n');
+            rows++;
+        }
+        return rows;
+    }
+
+    private long writeBinary(String accountNo, HistoryCursor cursor) throws IOException {
+        buf.putInt(BINARY_MAGIC);
+        putString(accountNo);
+        long rows = 0;
+        while (cursor.next()) {
+            ensure(MAX_ROW_SIZE);
+            buf.put((byte) (cursor.type().ordinal() + 1));
+            buf.putLong(cursor.id());
+            buf.putLong(cursor.amountPaise());
+            buf.putLong(cursor.timestampMillis());
+            putString(cursor.notes());
+            rows++;
+        }
+        ensure(9);
+        buf.put((byte) 0);
+        buf.putLong(rows);
+        return rows;
+    }
+
+    // --- formatting ------------------------------------------------------------------------
+
+    private void putTimestamp(long millis) {
+        long day = Math.floorDiv(millis, MILLIS_PER_DAY);
+        if (day != cachedDay) {
+            LocalDate d = LocalDate.ofEpochDay(day);
+            putDigits(date, 0, d.getYear(), 4);
+            date[4] = '-';
+            putDigits(date, 5, d.getMonthValue(), 2);
+            date[7] = '-';
+            putDigits(date, 8, d.getDayOfMonth(), 2);
+            cachedDay = day;
+        }
+        buf.put(date);
+        int seconds = (int) (Math.floorMod(millis, MILLIS_PER_DAY) / 1000);
+        buf.put((byte) ' ');
+        putTwoDigits(seconds / 3600);
+        buf.put((byte) ':');
+        putTwoDigits(seconds / 60 % 60);
+        buf.put((byte) ':');
+        putTwoDigits(seconds % 60);
+    }
+
+    // Same text as Money.toString(): rupees, a dot and two digits of paise.
+    private void putAmount(long paise) {
+        if (paise < 0) buf.put((byte) '-');
+        putDecimal(Math.abs(paise / 100));
+        buf.put((byte) '.');
+        putTwoDigits((int) Math.abs(paise % 100));
+    }
+
+    // v must not be negative
+    private void putDecimal(long v) {
+        int digits = 1;
+        for (long p = 10; digits < 19 && v >= p; p *= 10) digits++;
+        int pos = buf.position();
+        byte[] a = buf.array();
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            a[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+        buf.position(pos + digits);
+    }
+
+    private void putTwoDigits(int v) {
+        buf.put((byte) ('0' + v / 10));
+        buf.put((byte) ('0' + v % 10));
+    }
+
+    private static void putDigits(byte[] a, int off, int v, int width) {
+        for (int i = off + width - 1; i >= off; i--) {
+            a[i] = (byte) ('0' + v % 10);
+            v /= 10;
+        }
+    }
+
+    private void putCsvField(String s) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < s.length() && !quote; i++) {
+            char c = s.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            putText(s);
+            return;
+        }
+        ensure(1);
+        buf.put((byte) '"');
+        putText(s.replace("\"", "\"\""));
+        ensure(1);
+        buf.put((byte) '"');
+    }
+
+    private void putString(String s) throws IOException {
+        ensure(2);
+        if (s == null) {
+            buf.putShort((short) -1);
+            return;
+        }
+        if (isShortAscii(s)) {
+            buf.putShort((short) s.length());
+            putAscii(s);
+            return;
+        }
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) throw new IllegalArgumentException("Statement field too long");
+        buf.putShort((short) bytes.length);
+        putBytes(bytes);
+    }
+
+    // ASCII text is copied char by char; anything else goes through the UTF-8 encoder.
+    private void putText(String s) throws IOException {
+        if (isShortAscii(s)) {
+            putAscii(s);
+        } else {
+            putBytes(s.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private boolean isShortAscii(String s) {
+        int n = s.length();
+        if (n > buf.capacity() / 2) return false;
+        for (int i = 0; i < n; i++) {
+            if (s.charAt(i) >= 0x80) return false;
+        }
+        return true;
+    }
+
+    private void putAscii(String s) throws IOException {
+        int n = s.length();
+        ensure(n);
+        int pos = buf.position();
+        byte[] a = buf.array();
+        for (int i = 0; i < n; i++) a[pos + i] = (byte) s.charAt(i);
+        buf.position(pos + n);
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        if (bytes.length > buf.capacity() / 2) {
+            flush();
+            ByteBuffer direct = ByteBuffer.wrap(bytes);
+            while (direct.hasRemaining()) out.write(direct);
+            return;
+        }
+        ensure(bytes.length);
+        buf.put(bytes);
+    }
+
+    private void ensure(int n) throws IOException {
+        if (buf.remaining() < n) flush();
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        while (buf.hasRemaining()) out.write(buf);
+        buf.clear();
+    }
+}
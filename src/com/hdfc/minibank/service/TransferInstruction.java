@@ -0,0 +1,24 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Money;
+
+public class TransferInstruction {
+    private final String fromAccountNo;
+    private final String toAccountNo;
+    private final Money amount;
+
+    public TransferInstruction(String fromAccountNo, String toAccountNo, Money amount) {
+        this.fromAccountNo = fromAccountNo;
+        this.toAccountNo = toAccountNo;
+        this.amount = amount;
+    }
+
+    public String getFromAccountNo() { return fromAccountNo; }
+    public String getToAccountNo() { return toAccountNo; }
+    public Money getAmount() { return amount; }
+
+    @Override
+    public String toString() {
+        return fromAccountNo + " -> " + toAccountNo + " : " + amount;
+    }
+}
@@ -0,0 +1,160 @@
+package com.hdfc.minibank.shard;
+
+import com.hdfc.minibank.domain.Money;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The router's cross-shard transfers that have not finished, as an append-only text file:
+ *
+ *   begin {debitId} {creditId} {refundId} {from} {to} {amountPaise}
+ *   debited {debitId} {receipt}
+ *   end {debitId}
+ *
+ * A begin line is forced to disk before the debit is sent, so a router that crashes after the
+ * debit still knows the transfer and its step ids. The other lines are written but not forced:
+ * losing one only means a step is sent again, and the shards apply each step id once. A torn
+ * last line is dropped when the file is reopened.
+ *
+ * The file is rewritten with only the open transfers when it is opened and whenever
+ * {@link #COMPACT_BYTES} have been appended since. A lock file next to it keeps a second router
+ * from using the same log.
+ */
+final class SagaLog implements AutoCloseable {
+
+    static final long COMPACT_BYTES = 1 << 20;
+
+    private final Path file;
+    private final FileChannel lockChannel;
+    private final Map<Long, ShardRouter.PendingTransfer> open = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long appended;
+
+    private SagaLog(Path file, FileChannel lockChannel) {
+        this.file = file;
+        this.lockChannel = lockChannel;
+    }
+
+    static SagaLog open(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        FileChannel lock = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        boolean locked;
+        try {
+            locked = lock.tryLock() != null;
+        } catch (OverlappingFileLockException e) {
+            locked = false; // held by another router in this JVM
+        }
+        if (!locked) {
+            lock.close();
+            throw new IllegalStateException("Saga log " + file + " is in use by another router");
+        }
+        SagaLog log = new SagaLog(file, lock);
+        if (Files.exists(file)) {
+            // a crash can leave the last line half written; only lines ending in a newline count
+            byte[] bytes = Files.readAllBytes(file);
+            int intact = bytes.length;
+            while (intact > 0 && bytes[intact - 1] != '\n') intact--;
+            for (String line : new String(bytes, 0, intact, StandardCharsets.UTF_8).split("\n")) {
+                String[] f = line.split(" ");
+                if (f[0].equals("begin")) {
+                    ShardRouter.PendingTransfer t = new ShardRouter.PendingTransfer(Long.parseLong(f[1]), Long.parseLong(f[2]),
+                            Long.parseLong(f[3]), f[4], f[5], Money.ofPaise(Long.parseLong(f[6])));
+                    log.open.put(t.debitId, t);
+                } else if (f[0].equals("debited")) {
+                    ShardRouter.PendingTransfer t = log.open.get(Long.parseLong(f[1]));
+                    if (t != null) {
+                        t.receipt = f[2];
+                        t.debited = true;
+                    }
+                } else if (f[0].equals("end")) {
+                    log.open.remove(Long.parseLong(f[1]));
+                }
+            }
+        }
+        log.compact();
+        return log;
+    }
+
+    // Transfers begun by an earlier run and never ended.
+    synchronized List<ShardRouter.PendingTransfer> openTransfers() {
+        return new ArrayList<>(open.values());
+    }
+
+    synchronized void begin(ShardRouter.PendingTransfer t) {
+        try {
+            append(beginLine(t), true);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not record transfer " + t.debitId, e);
+        }
+        open.put(t.debitId, t);
+    }
+
+    synchronized void debited(ShardRouter.PendingTransfer t) {
+        try {
+            append("debited " + t.debitId + " " + t.receipt + "\n", false);
+        } catch (IOException e) {
+            // the transfer stays open on disk, so the worst case is a repeated debit step
+            System.err.println("Saga log write failed: " + e);
+        }
+    }
+
+    synchronized void end(ShardRouter.PendingTransfer t) {
+        open.remove(t.debitId);
+        try {
+            append("end " + t.debitId + "\n", false);
+            if (appended >= COMPACT_BYTES) compact();
+        } catch (IOException e) {
+            System.err.println("Saga log write failed: " + e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+        lockChannel.close();
+    }
+
+    private void append(String lines, boolean force) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(lines.getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) channel.write(buf);
+        if (force) channel.force(false);
+        appended += lines.length();
+    }
+
+    // Writes the open transfers to a new file and moves it over the old one.
+    private void compact() throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (ShardRouter.PendingTransfer t : open.values()) {
+            sb.append(beginLine(t));
+            if (t.debited) sb.append("debited ").append(t.debitId).append(' ').append(t.receipt).append('\n');
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+            while (buf.hasRemaining()) out.write(buf);
+            out.force(false);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        FileChannel old = channel;
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        appended = 0;
+        if (old != null) old.close();
+    }
+
+    private static String beginLine(ShardRouter.PendingTransfer t) {
+        return "begin " + t.debitId + " " + t.creditId + " " + t.refundId + " " + t.from + " " + t.to + " " + t.amount.toPaise() + "\n";
+    }
+}
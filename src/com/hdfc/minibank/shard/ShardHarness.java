@@ -0,0 +1,285 @@
+package com.hdfc.minibank.shard;
+
+import com.hdfc.minibank.Main;
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.InvalidAccountException;
+import com.hdfc.minibank.http.TransferStepServer;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Starts N shard processes on loopback ports, loads them through a {@link ShardRouter} and
+ * prints transfer throughput for each shard count:
+ *
+ *   java -cp target/classes com.hdfc.minibank.shard.ShardHarness --shards=1,2,4 --seconds=10
+ *
+ * The timed load is transfers between accounts of the same shard, which never leave their
+ * shard, so throughput should grow with the shard count as long as the machine has a core per
+ * shard to spare. Afterwards a run of cross-shard transfers checks that the bank-wide balance
+ * is unchanged and no transfer is left pending; if either check fails, the exit status is 1.
+ * Bad options exit with status 2.
+ *
+ * Options: --shards=1,2,4 --seconds=10 --clients=8 (per shard) --accounts=64 (per shard)
+ * --crossShard=2000 --seed=42
+ */
+public final class ShardHarness {
+
+    private static final Money OPENING_BALANCE = Money.ofRupees(1_000_000);
+    private static final Money TRANSFER_AMOUNT = Money.ofRupees(1);
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+
+    private final int shards;
+    private final int clientsPerShard;
+    private final int accountsPerShard;
+    private final long seed;
+    private final Path workDir;
+    private final List<Process> processes = new ArrayList<>();
+    private ShardRouter router;
+    private List<List<String>> accounts;
+
+    private ShardHarness(int shards, int clientsPerShard, int accountsPerShard, long seed) throws IOException {
+        this.shards = shards;
+        this.clientsPerShard = clientsPerShard;
+        this.accountsPerShard = accountsPerShard;
+        this.seed = seed;
+        this.workDir = Files.createTempDirectory("minibank-shards-");
+    }
+
+    public static void main(String[] args) throws Exception {
+        String shardCounts = "1,2,4";
+        long seconds = 10;
+        int clients = 8;
+        int accounts = 64;
+        int crossShard = 2000;
+        long seed = 42;
+        try {
+            for (String arg : args) {
+                String value = arg.substring(arg.indexOf('=') + 1);
+                if (arg.startsWith("--shards=")) shardCounts = value;
+                else if (arg.startsWith("--seconds=")) seconds = Long.parseLong(value);
+                else if (arg.startsWith("--clients=")) clients = Integer.parseInt(value);
+                else if (arg.startsWith("--accounts=")) accounts = Integer.parseInt(value);
+                else if (arg.startsWith("--crossShard=")) crossShard = Integer.parseInt(value);
+                else if (arg.startsWith("--seed=")) seed = Long.parseLong(value);
+                else throw new IllegalArgumentException("Unknown option: " + arg);
+            }
+            for (String s : shardCounts.split(",")) Integer.parseInt(s.trim());
+        } catch (IllegalArgumentException e) { // NumberFormatException included
+            System.out.println(e instanceof NumberFormatException ? "Invalid option value: " + e.getMessage() : e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.println("Cores: " + Runtime.getRuntime().availableProcessors() + ", " + clients + " clients and "
+                + accounts + " accounts per shard, " + seconds + "s per run");
+        System.out.println(String.format(Locale.ROOT, "%6s %8s %14s %12s %8s", "shards", "clients", "transfers/s", "per shard", "scaling"));
+        double baseline = 0;
+        boolean conserved = true;
+        for (String s : shardCounts.split(",")) {
+            int n = Integer.parseInt(s.trim());
+            ShardHarness harness = new ShardHarness(n, clients, accounts, seed);
+            try {
+                harness.start();
+                double rate = harness.runLocalTransfers(TimeUnit.SECONDS.toNanos(seconds));
+                if (baseline == 0) baseline = rate / n;
+                System.out.println(String.format(Locale.ROOT, "%6d %8d %14.0f %12.0f %7.2fx",
+                        n, n * clients, rate, rate / n, rate / baseline));
+                if (n > 1 && crossShard > 0 && !harness.runCrossShardTransfers(crossShard)) conserved = false;
+            } finally {
+                harness.stop();
+            }
+        }
+        if (!conserved) System.exit(1);
+    }
+
+    private void start() throws IOException, InterruptedException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        String secret = newSecret();
+        String receiptSecret = newSecret(); // for the shards only, see TransferStepServer
+        List<URI> uris = new ArrayList<>();
+        List<URI> stepUris = new ArrayList<>();
+        for (int i = 0; i < shards; i++) {
+            int port = freePort();
+            int stepsPort = freePort();
+            Path dir = workDir.resolve("shard-" + i);
+            Files.createDirectories(dir);
+            ProcessBuilder shard = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                    "-Dminibank.dataDir=" + dir,
+                    "-Dminibank.shard=" + i,
+                    "-Dminibank.shards=" + shards,
+                    "-Dminibank.nodeId=" + i,
+                    "-Dminibank.metrics.dumpSeconds=0",
+                    "-Dminibank.limits=off", // the load is far beyond what a real customer may move
+                    Main.class.getName(), "--no-console", "--http=" + port);
+            if (shards > 1) shard.command().add("--steps-http=" + stepsPort); // a single shard has no steps to take
+            shard.redirectErrorStream(true)
+                    .redirectOutput(dir.resolve("shard.log").toFile());
+            shard.environment().put(TransferStepServer.SECRET_ENV, secret);
+            shard.environment().put(TransferStepServer.RECEIPT_SECRET_ENV, receiptSecret);
+            processes.add(shard.start());
+            uris.add(URI.create("http://127.0.0.1:" + port));
+            stepUris.add(URI.create("http://127.0.0.1:" + stepsPort));
+        }
+        for (URI uri : uris) awaitReady(uri);
+        router = new ShardRouter(uris, stepUris, secret, workDir.resolve("router").resolve("sagas.log"));
+
+        // one customer per shard, so that each customer's accounts land on its own shard
+        accounts = new ArrayList<>();
+        for (int i = 0; i < shards; i++) accounts.add(new ArrayList<>());
+        int found = 0;
+        for (int n = 1000; found < shards && n <= 9999; n++) {
+            String id = "CUST" + n;
+            List<String> own = accounts.get(router.shardOfCustomer(id));
+            if (!own.isEmpty()) continue;
+            router.registerCustomer(new Customer(id, "Shard Harness", "harness" + n + "@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+            for (int a = 0; a < accountsPerShard; a++) {
+                own.add(router.openAccount(id, AccountType.CURRENT, OPENING_BALANCE));
+            }
+            found++;
+        }
+    }
+
+    // Transfers inside each shard from clientsPerShard threads per shard; returns transfers per second.
+    private double runLocalTransfers(long durationNanos) throws Exception {
+        int clients = shards * clientsPerShard;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        LongAdder done = new LongAdder();
+        try {
+            long warmupEnd = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            long end = warmupEnd + durationNanos;
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                List<String> own = accounts.get(c % shards);
+                SplittableRandom random = new SplittableRandom(seed + c);
+                futures.add(pool.submit(() -> {
+                    long now;
+                    while ((now = System.nanoTime()) < end) {
+                        int from = random.nextInt(own.size());
+                        int to = (from + 1 + random.nextInt(own.size() - 1)) % own.size();
+                        router.transfer(own.get(from), own.get(to), TRANSFER_AMOUNT);
+                        if (now >= warmupEnd) done.increment();
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        return done.sum() * 1e9 / durationNanos;
+    }
+
+    // Transfers between random accounts of different shards; returns whether every transfer was
+    // settled and no money was made or lost.
+    private boolean runCrossShardTransfers(int count) throws Exception {
+        int clients = shards * clientsPerShard;
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        LongAdder failed = new LongAdder();
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                SplittableRandom random = new SplittableRandom(seed ^ (0x9E3779B97F4A7C15L * (c + 1)));
+                int share = count / clients + (c < count % clients ? 1 : 0);
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < share; i++) {
+                        int fromShard = random.nextInt(shards);
+                        int toShard = (fromShard + 1 + random.nextInt(shards - 1)) % shards;
+                        List<String> from = accounts.get(fromShard);
+                        List<String> to = accounts.get(toShard);
+                        try {
+                            router.transfer(from.get(random.nextInt(from.size())), to.get(random.nextInt(to.size())), TRANSFER_AMOUNT);
+                        } catch (InvalidAccountException | InsufficientBalanceException | IllegalStateException e) {
+                            failed.increment();
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int pending = router.retryPending();
+
+        long expected = OPENING_BALANCE.toPaise() * accountsPerShard * shards;
+        long total = 0;
+        for (List<String> own : accounts) {
+            for (String accountNo : own) total += router.getBalance(accountNo).toPaise();
+        }
+        System.out.println(String.format(Locale.ROOT,
+                "       cross-shard: %d transfers in %.1fs (%.0f/s), %d failed, %d refunds, %d retries, %d pending; total balance %s %s",
+                router.getCrossShardTransfers(), seconds, router.getCrossShardTransfers() / seconds, failed.sum(),
+                router.getRefunds(), router.getRetries(), pending, Money.ofPaise(total),
+                total == expected ? "(unchanged)" : "(EXPECTED " + Money.ofPaise(expected) + ")"));
+        if (total != expected || pending > 0) {
+            System.out.println("FAILED: " + (total != expected ? "the total balance changed" : pending + " transfers are still pending"));
+            return false;
+        }
+        return true;
+    }
+
+    private void stop() throws IOException, InterruptedException {
+        if (router != null) router.close();
+        for (Process p : processes) p.destroy();
+        for (Process p : processes) {
+            if (!p.waitFor(10, TimeUnit.SECONDS)) p.destroyForcibly().waitFor();
+        }
+        try (Stream<Path> files = Files.walk(workDir)) {
+            for (Path p : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static void awaitReady(URI shard) throws IOException, InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (true) {
+            try {
+                HttpURLConnection c = (HttpURLConnection) shard.resolve("/accounts/ACC0").toURL().openConnection();
+                c.getResponseCode();
+                c.disconnect();
+                return;
+            } catch (IOException e) {
+                if (System.currentTimeMillis() > deadline) throw new IOException("Shard at " + shard + " did not start", e);
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static String newSecret() {
+        byte[] key = new byte[32];
+        new SecureRandom().nextBytes(key);
+        return HexFormat.of().formatHex(key);
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.hdfc.minibank.shard;
+
+import com.hdfc.minibank.ids.SnowflakeIdGenerator;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Which of N shards owns a key. Accounts are placed by a hash of the account number, customers'
+ * new accounts by a hash of the customer ID, and every shard only hands out account numbers
+ * that hash to itself, so the number alone is enough to route a request.
+ */
+public final class ShardMap {
+
+    // Node id of the router's transaction ids; a shard treats ids from this node as transfer
+    // steps and applies each at most once. Shards must use a different minibank.nodeId.
+    public static final int ROUTER_NODE_ID = SnowflakeIdGenerator.MAX_NODE_ID;
+
+    // How long shards remember the transfer steps they applied (-Dminibank.shard.stepRetentionHours,
+    // 24 by default). An older step is refused, since a repeat could no longer be told from a new one.
+    public static long stepRetentionMillis() {
+        return TimeUnit.HOURS.toMillis(Long.getLong("minibank.shard.stepRetentionHours", 24));
+    }
+
+    private ShardMap() {
+    }
+
+    public static int shardOf(String key, int shards) {
+        // String.hashCode of similar keys differs mostly in the low bits; mix before the modulo
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Math.floorMod(h, shards);
+    }
+}
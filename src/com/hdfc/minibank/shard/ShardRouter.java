@@ -0,0 +1,330 @@
+package com.hdfc.minibank.shard;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.exceptions.InvalidAccountException;
+import com.hdfc.minibank.ids.SnowflakeIdGenerator;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Client-side router over N shard processes, each a {@link com.hdfc.minibank.http.BankHttpServer}
+ * started with -Dminibank.shard=i -Dminibank.shards=N. Requests go to the shard that owns the
+ * account (see {@link ShardMap}); customers are registered on every shard.
+ *
+ * Transfer steps go to each shard's internal {@link com.hdfc.minibank.http.TransferStepServer}
+ * with the secret the shards were started with.
+ *
+ * A transfer within one shard is a single call. A transfer across shards is a saga of steps,
+ * each named by an id the router takes from its own Snowflake node and applied at most once
+ * by the shard, so a step whose answer was lost can be retried as is:
+ *
+ *   1. debit the source on its shard  (insufficient balance ends the transfer here)
+ *   2. credit the destination on its shard, showing the receipt the debit returned
+ *   3. only if the credit is refused, refund the source with the same receipt
+ *
+ * Every transfer is written to a {@link SagaLog} with its step ids before the debit is sent.
+ * When a shard stays unreachable through every retry, the remaining steps are kept with their
+ * ids and sent again by {@link #retryPending()}; transfers a crashed router left unfinished are
+ * read back from the log when it starts and are pending in the same way. A transfer is retried
+ * for half the shards' step retention period; after that a repeated step could be taken for a
+ * new one, so it is left open in the log and reported for settling by hand.
+ */
+public class ShardRouter implements AutoCloseable {
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long BACKOFF_MILLIS = 50;
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+    private static final Pattern BALANCE = Pattern.compile("\"balance\":(-?[0-9.]+)");
+    private static final Pattern ACCOUNT_NO = Pattern.compile("\"accountNo\":\"([^\"]+)\"");
+    private static final Pattern RECEIPT = Pattern.compile("\"receipt\":\"([0-9a-f]+)\"");
+    private static final Pattern ERROR = Pattern.compile("\"error\":\"((?:[^\"\\\\]|\\\\.)*)\"");
+
+    private final List<URI> shards;
+    private final List<URI> stepEndpoints;
+    private final String authorization;
+    private final HttpClient http;
+    private final SagaLog sagas;
+    private final long retryHorizonMillis = ShardMap.stepRetentionMillis() / 2;
+    private final SnowflakeIdGenerator stepIds = new SnowflakeIdGenerator(ShardMap.ROUTER_NODE_ID);
+    private final Queue<PendingTransfer> pending = new ConcurrentLinkedQueue<>();
+    private final LongAdder localTransfers = new LongAdder();
+    private final LongAdder crossShardTransfers = new LongAdder();
+    private final LongAdder refunds = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+
+    // shards[i] is the base URI of shard i, e.g. http://127.0.0.1:8081, and stepEndpoints[i]
+    // the base URI of its transfer step server. Unfinished transfers are kept in sagaLog.
+    public ShardRouter(List<URI> shards, List<URI> stepEndpoints, String secret, Path sagaLog) throws IOException {
+        if (stepEndpoints.size() != shards.size()) {
+            throw new IllegalArgumentException("Expected a step endpoint for each of the " + shards.size() + " shards");
+        }
+        this.shards = new ArrayList<>(shards);
+        this.stepEndpoints = new ArrayList<>(stepEndpoints);
+        this.authorization = "Bearer " + secret;
+        this.http = HttpClient.newBuilder().connectTimeout(TIMEOUT).build();
+        this.sagas = SagaLog.open(sagaLog);
+        for (PendingTransfer t : sagas.openTransfers()) {
+            stepIds.advancePast(t.refundId);
+            pending.add(t);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        sagas.close();
+    }
+
+    public int getShardCount() { return shards.size(); }
+    public long getLocalTransfers() { return localTransfers.sum(); }
+    public long getCrossShardTransfers() { return crossShardTransfers.sum(); }
+    public long getRefunds() { return refunds.sum(); }
+    public long getRetries() { return retries.sum(); }
+    public int getPendingTransfers() { return pending.size(); }
+
+    public int shardOf(String accountNo) {
+        return ShardMap.shardOf(accountNo, shards.size());
+    }
+
+    // The shard a customer's new accounts are opened on.
+    public int shardOfCustomer(String customerId) {
+        return ShardMap.shardOf(customerId, shards.size());
+    }
+
+    public void registerCustomer(Customer c) {
+        String form = form("id", c.getId(), "name", c.getName(), "email", c.getEmail(), "phone", c.getPhone(), "dob", c.getDateOfBirth().toString());
+        int registered = 0;
+        IllegalArgumentException rejected = null;
+        for (int shard = 0; shard < shards.size(); shard++) {
+            try {
+                post(shard, "/customers", form, false);
+                registered++;
+            } catch (InvalidAccountException | InsufficientBalanceException e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            } catch (IllegalArgumentException e) {
+                rejected = e; // e.g. already registered there by an earlier, partly failed call
+            }
+        }
+        if (registered == 0 && rejected != null) throw rejected;
+    }
+
+    public String openAccount(String customerId, AccountType type, Money initial) {
+        try {
+            String body = post(shardOfCustomer(customerId), "/accounts",
+                    form("customerId", customerId, "type", type.name(), "initial", initial.toString()), false);
+            return field(ACCOUNT_NO, body);
+        } catch (InvalidAccountException | InsufficientBalanceException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    public Money getBalance(String accountNo) throws InvalidAccountException {
+        try {
+            return Money.parse(field(BALANCE, get(shardOf(accountNo), "/accounts/" + accountNo)));
+        } catch (InsufficientBalanceException e) {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    public void deposit(String accountNo, Money amount) throws InvalidAccountException, InsufficientBalanceException {
+        post(shardOf(accountNo), "/accounts/" + accountNo + "/deposit", form("amount", amount.toString()), false);
+    }
+
+    public void withdraw(String accountNo, Money amount) throws InvalidAccountException, InsufficientBalanceException {
+        post(shardOf(accountNo), "/accounts/" + accountNo + "/withdraw", form("amount", amount.toString()), false);
+    }
+
+    public void transfer(String from, String to, Money amount) throws InvalidAccountException, InsufficientBalanceException {
+        int source = shardOf(from);
+        int target = shardOf(to);
+        if (source == target) {
+            post(source, "/transfers", form("from", from, "to", to, "amount", amount.toString()), false);
+            localTransfers.increment();
+            return;
+        }
+        get(target, "/accounts/" + to); // a missing destination is refused before any money moves
+        PendingTransfer t = new PendingTransfer(stepIds.nextId(), stepIds.nextId(), stepIds.nextId(), from, to, amount);
+        sagas.begin(t);
+        try {
+            t.receipt = field(RECEIPT, step(source, "debit", t));
+        } catch (IOException e) {
+            // the debit may or may not have been applied; retrying it later settles which
+            pending.add(t);
+            throw new IllegalStateException("Transfer " + t.debitId + " is pending: " + e.getMessage(), e);
+        } catch (InvalidAccountException | InsufficientBalanceException | IllegalArgumentException e) {
+            sagas.end(t);
+            throw e;
+        }
+        t.debited = true;
+        sagas.debited(t);
+        crossShardTransfers.increment();
+        complete(t);
+    }
+
+    // Sends the remaining steps of transfers that could not be finished; returns how many are still pending.
+    public int retryPending() {
+        for (int n = pending.size(); n > 0; n--) {
+            PendingTransfer t = pending.poll();
+            if (t == null) break;
+            if (System.currentTimeMillis() - SnowflakeIdGenerator.timestampMillis(t.debitId) > retryHorizonMillis) {
+                System.err.println("Transfer " + t.debitId + " is past the retry horizon and must be settled by hand");
+                continue;
+            }
+            try {
+                if (!t.debited) {
+                    t.receipt = field(RECEIPT, step(shardOf(t.from), "debit", t));
+                    t.debited = true;
+                    sagas.debited(t);
+                    crossShardTransfers.increment();
+                }
+                complete(t);
+            } catch (IOException | IllegalStateException e) {
+                if (!pending.contains(t)) pending.add(t);
+            } catch (InvalidAccountException | InsufficientBalanceException | IllegalArgumentException e) {
+                // refused for good: either nothing was debited or the debit was refunded
+                if (!t.debited) sagas.end(t);
+            }
+        }
+        return pending.size();
+    }
+
+    // Credit, or refund if the destination refuses it. The debit has been applied.
+    private void complete(PendingTransfer t) throws InvalidAccountException, InsufficientBalanceException {
+        try {
+            try {
+                step(shardOf(t.to), "credit", t);
+            } catch (InvalidAccountException | IllegalArgumentException e) {
+                step(shardOf(t.from), "refund", t);
+                refunds.increment();
+                sagas.end(t);
+                throw e;
+            }
+            sagas.end(t);
+        } catch (IOException e) {
+            pending.add(t);
+            throw new IllegalStateException("Transfer " + t.debitId + " is pending: " + e.getMessage(), e);
+        }
+    }
+
+    private String step(int shard, String name, PendingTransfer t) throws IOException, InvalidAccountException, InsufficientBalanceException {
+        String form = form("debit", Long.toString(t.debitId), "credit", Long.toString(t.creditId), "refund", Long.toString(t.refundId),
+                "from", t.from, "to", t.to, "amount", t.amount.toString());
+        if (t.receipt != null) form += "&receipt=" + t.receipt;
+        return send(shard, HttpRequest.newBuilder(stepEndpoints.get(shard).resolve("/transfers/" + name))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Authorization", authorization)
+                .POST(HttpRequest.BodyPublishers.ofString(form)), true);
+    }
+
+    private String get(int shard, String path) throws InvalidAccountException, InsufficientBalanceException {
+        try {
+            return send(shard, HttpRequest.newBuilder(shards.get(shard).resolve(path)).GET(), true);
+        } catch (IOException e) {
+            throw new IllegalStateException("Shard " + shard + " is unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    private String post(int shard, String path, String form, boolean idempotent) throws InvalidAccountException, InsufficientBalanceException {
+        try {
+            return send(shard, HttpRequest.newBuilder(shards.get(shard).resolve(path))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(HttpRequest.BodyPublishers.ofString(form)), idempotent);
+        } catch (IOException e) {
+            throw new IllegalStateException("Shard " + shard + " is unavailable: " + e.getMessage(), e);
+        }
+    }
+
+    // Idempotent requests are retried with exponential backoff on I/O errors and 5xx answers;
+    // a 401 from a shard with another secret counts as a failure to reach it, not as a refusal.
+    private String send(int shard, HttpRequest.Builder request, boolean idempotent)
+            throws IOException, InvalidAccountException, InsufficientBalanceException {
+        HttpRequest req = request.timeout(TIMEOUT).build();
+        IOException failure = null;
+        for (int attempt = 0; attempt < (idempotent ? MAX_ATTEMPTS : 1); attempt++) {
+            if (attempt > 0) {
+                retries.increment();
+                try {
+                    Thread.sleep(BACKOFF_MILLIS << (attempt - 1));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while retrying shard " + shard, e);
+                }
+            }
+            HttpResponse<String> res;
+            try {
+                res = http.send(req, HttpResponse.BodyHandlers.ofString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while calling shard " + shard, e);
+            } catch (IOException e) {
+                failure = e;
+                continue;
+            }
+            int status = res.statusCode();
+            if (status < 300) return res.body();
+            String message = errorMessage(res.body());
+            if (status == 404) throw new InvalidAccountException(message);
+            if (status == 409) throw new InsufficientBalanceException(message);
+            if (status < 500 && status != 401) throw new IllegalArgumentException(message);
+            failure = new IOException("Shard " + shard + " answered " + status + ": " + message);
+        }
+        throw failure;
+    }
+
+    private static String errorMessage(String body) {
+        Matcher m = ERROR.matcher(body);
+        return m.find() ? m.group(1).replace("\\\"", "\"").replace("\\\\", "\\") : body;
+    }
+
+    private static String field(Pattern pattern, String body) {
+        Matcher m = pattern.matcher(body);
+        if (!m.find()) throw new IllegalStateException("Unexpected shard response: " + body);
+        return m.group(1);
+    }
+
+    private static String form(String... pairs) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pairs.length; i += 2) {
+            if (i > 0) sb.append('&');
+            sb.append(pairs[i]).append('=').append(URLEncoder.encode(pairs[i + 1], StandardCharsets.UTF_8));
+        }
+        return sb.toString();
+    }
+
+    static final class PendingTransfer {
+        final long debitId;
+        final long creditId;
+        final long refundId;
+        final String from;
+        final String to;
+        final Money amount;
+        volatile boolean debited;
+        volatile String receipt; // handed out by the source shard for the debit
+
+        PendingTransfer(long debitId, long creditId, long refundId, String from, String to, Money amount) {
+            this.debitId = debitId;
+            this.creditId = creditId;
+            this.refundId = refundId;
+            this.from = from;
+            this.to = to;
+            this.amount = amount;
+        }
+    }
+}
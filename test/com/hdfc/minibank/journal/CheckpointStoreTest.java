@@ -0,0 +1,138 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.SavingsAccount;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.repository.AccountRepository;
+import com.hdfc.minibank.repository.CustomerRepository;
+import com.hdfc.minibank.repository.TransactionRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointStoreTest {
+
+    private static final long SEGMENT_SIZE = 128 * 1024;
+    private static final int ACCOUNTS = 10;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    @TempDir
+    Path dir;
+
+    private final long[] balances = new long[ACCOUNTS];
+    private final List<List<Long>> ids = new ArrayList<>();
+    private long nextId = 1;
+
+    @Test
+    void restartRebuildsBalancesAndHistoryFromCheckpointsAndTheJournalTail() throws IOException {
+        long checkpointed;
+        try (CheckpointStore checkpoints = CheckpointStore.open(dir.resolve("checkpoints"), 2)) {
+            TransactionJournal journal = openJournal(0, new JournalRecovery(new CustomerRepository(), new AccountRepository(), new TransactionRepository()));
+            journal.appendCustomer(new Customer("CUST1000", "Test", "test@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+            for (int i = 0; i < ACCOUNTS; i++) {
+                journal.appendAccountOpened(new SavingsAccount(accountNo(i), "CUST1000", Money.ofPaise(0), START));
+                ids.add(new ArrayList<>());
+            }
+            Random random = new Random(42);
+            // more checkpoints than maxDeltas, so the chain and its history are merged once
+            for (int round = 0; round < 5; round++) {
+                journal.awaitDurable(post(journal, random, 2000));
+                checkpoints.checkpoint(journal);
+            }
+            checkpointed = checkpoints.getLsn();
+            journal.awaitDurable(post(journal, random, 500)); // only in the journal
+            journal.close();
+        }
+
+        try (Stream<Path> segments = Files.list(dir.resolve("journal"))) {
+            assertFalse(segments.anyMatch(p -> p.getFileName().toString().equals("journal-00000000000000000000.seg")),
+                    "segments covered by the checkpoint are dropped");
+        }
+
+        CustomerRepository customers = new CustomerRepository();
+        AccountRepository accounts = new AccountRepository();
+        TransactionRepository transactions = new TransactionRepository();
+        JournalRecovery recovery = new JournalRecovery(customers, accounts, transactions);
+        try (CheckpointStore checkpoints = CheckpointStore.open(dir.resolve("checkpoints"), 2)) {
+            long lsn = checkpoints.load(recovery);
+            assertEquals(checkpointed, lsn);
+            checkpoints.loadHistory(recovery);
+            openJournal(lsn, recovery).close();
+        }
+        recovery.complete();
+
+        assertTrue(customers.exists("CUST1000"));
+        assertEquals(nextId - 1, transactions.count());
+        assertEquals(nextId - 1, recovery.getMaxTransactionId());
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertEquals(balances[i], accounts.findByNumber(accountNo(i)).getBalancePaise(), accountNo(i));
+            List<Long> history = new ArrayList<>();
+            for (Transaction t : transactions.findByAccount(accountNo(i))) history.add(t.getId());
+            assertEquals(ids.get(i), history, accountNo(i));
+        }
+    }
+
+    @Test
+    void historyOfAnUnfinishedCheckpointIsDropped() throws IOException {
+        try (CheckpointStore checkpoints = CheckpointStore.open(dir.resolve("checkpoints"))) {
+            TransactionJournal journal = openJournal(0, new JournalRecovery(new CustomerRepository(), new AccountRepository(), new TransactionRepository()));
+            journal.appendCustomer(new Customer("CUST1000", "Test", "test@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+            journal.appendAccountOpened(new SavingsAccount(accountNo(0), "CUST1000", Money.ofPaise(0), START));
+            ids.add(new ArrayList<>());
+            journal.awaitDurable(post(journal, new Random(1), 10));
+            checkpoints.checkpoint(journal);
+            journal.close();
+        }
+        // what a crash between writing a history file and its checkpoint leaves behind
+        Path orphan = dir.resolve("checkpoints").resolve(String.format("history-%020d-%020d.txh", 1L << 40, (1L << 40) + 1));
+        Files.write(orphan, new byte[64]);
+
+        try (CheckpointStore checkpoints = CheckpointStore.open(dir.resolve("checkpoints"))) {
+            TransactionRepository transactions = new TransactionRepository();
+            JournalRecovery recovery = new JournalRecovery(new CustomerRepository(), new AccountRepository(), transactions);
+            checkpoints.load(recovery);
+            checkpoints.loadHistory(recovery);
+            assertEquals(10, transactions.count());
+        }
+        assertFalse(Files.exists(orphan));
+    }
+
+    private TransactionJournal openJournal(long fromLsn, JournalReplayHandler handler) throws IOException {
+        return TransactionJournal.open(dir.resolve("journal"), SEGMENT_SIZE, 100, fromLsn, handler);
+    }
+
+    // Appends count deposits and withdrawals to random accounts; returns the last LSN.
+    private long post(TransactionJournal journal, Random random, int count) {
+        long lsn = 0;
+        for (int n = 0; n < count; n++) {
+            int i = random.nextInt(ids.size());
+            boolean deposit = random.nextBoolean();
+            long paise = 1 + random.nextInt(100_000);
+            long id = nextId++;
+            lsn = journal.appendTransaction(new Transaction(id, accountNo(i), deposit ? TransactionType.DEPOSIT : TransactionType.WITHDRAWAL,
+                    Money.ofPaise(paise), START.plusSeconds(id), deposit ? "Deposit" : "Withdrawal"));
+            balances[i] += deposit ? paise : -paise;
+            ids.get(i).add(id);
+        }
+        return lsn;
+    }
+
+    private static String accountNo(int i) {
+        return "ACC" + (1000 + i);
+    }
+}
@@ -0,0 +1,123 @@
+package com.hdfc.minibank.journal;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.SavingsAccount;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionJournalTest {
+
+    private static final long SEGMENT_SIZE = 128 * 1024;
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 9, 0);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoveryReplaysEveryRecordInOrder() throws IOException {
+        TransactionJournal journal = open(new Recorder());
+        journal.appendCustomer(new Customer("CUST1000", "Test", "test@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+        journal.appendAccountOpened(new SavingsAccount("SAV1000", "CUST1000", Money.ofPaise(0), START));
+        journal.appendTransaction(transaction(1, "SAV1000", TransactionType.DEPOSIT, 500_000));
+        journal.awaitDurable(journal.appendTransactions(List.of(
+                transaction(2, "SAV1000", TransactionType.TRANSFER_OUT, 1_000),
+                transaction(3, "SAV1001", TransactionType.TRANSFER_IN, 1_000))));
+        journal.close();
+
+        Recorder recovered = new Recorder();
+        open(recovered).close();
+        assertEquals(List.of("customer CUST1000", "account SAV1000 CUST1000 SAVINGS",
+                "1 SAV1000 DEPOSIT 500000", "2 SAV1000 TRANSFER_OUT 1000", "3 SAV1001 TRANSFER_IN 1000"), recovered.records);
+    }
+
+    @Test
+    void tornLastRecordIsDroppedAndOverwritten() throws IOException {
+        TransactionJournal journal = open(new Recorder());
+        long first = journal.appendTransaction(transaction(1, "SAV1000", TransactionType.DEPOSIT, 100));
+        journal.awaitDurable(journal.appendTransaction(transaction(2, "SAV1000", TransactionType.DEPOSIT, 200)));
+        journal.close();
+        corrupt(0, first + 8); // the kind byte of the second record
+
+        Recorder recovered = new Recorder();
+        journal = open(recovered);
+        assertEquals(List.of("1 SAV1000 DEPOSIT 100"), recovered.records);
+        assertEquals(first, journal.getWrittenLsn());
+        journal.awaitDurable(journal.appendTransaction(transaction(3, "SAV1000", TransactionType.DEPOSIT, 300)));
+        journal.close();
+
+        recovered = new Recorder();
+        open(recovered).close();
+        assertEquals(List.of("1 SAV1000 DEPOSIT 100", "3 SAV1000 DEPOSIT 300"), recovered.records);
+    }
+
+    @Test
+    void corruptRecordInAnEarlierSegmentFailsRecovery() throws IOException {
+        TransactionJournal journal = open(new Recorder());
+        long first = journal.appendTransaction(transaction(1, "SAV1000", TransactionType.DEPOSIT, 100));
+        long id = 2;
+        while (journal.getWrittenLsn() < 2 * SEGMENT_SIZE) {
+            journal.appendTransaction(transaction(id++, "SAV1000", TransactionType.DEPOSIT, 100));
+        }
+        journal.awaitDurable(journal.getWrittenLsn());
+        journal.close();
+        corrupt(0, first + 8);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> open(new Recorder()));
+        assertTrue(e.getMessage().startsWith("Corrupt journal record at LSN " + first), e.getMessage());
+    }
+
+    private TransactionJournal open(JournalReplayHandler handler) throws IOException {
+        return TransactionJournal.open(dir, SEGMENT_SIZE, TransactionJournal.DEFAULT_FLUSH_INTERVAL_MICROS, 0, handler);
+    }
+
+    private static Transaction transaction(long id, String accountNo, TransactionType type, long paise) {
+        return new Transaction(id, accountNo, type, Money.ofPaise(paise), START.plusSeconds(id), "Test");
+    }
+
+    // Flips one byte of a segment at the given LSN.
+    private void corrupt(long segment, long lsn) throws IOException {
+        Path file = dir.resolve(String.format("journal-%020d.seg", segment));
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            long pos = lsn - segment * SEGMENT_SIZE;
+            raf.seek(pos);
+            int b = raf.read();
+            raf.seek(pos);
+            raf.write(b ^ 0xFF);
+        }
+    }
+
+    private static final class Recorder implements JournalReplayHandler {
+        final List<String> records = new ArrayList<>();
+
+        @Override
+        public void onCustomer(Customer customer) {
+            records.add("customer " + customer.getId());
+        }
+
+        @Override
+        public void onAccountOpened(String accountNo, String customerId, AccountType type, LocalDateTime openedAt) {
+            records.add("account " + accountNo + " " + customerId + " " + type);
+        }
+
+        @Override
+        public void onTransaction(Transaction t) {
+            records.add(t.getId() + " " + t.getAccountNo() + " " + t.getType() + " " + t.getAmount().toPaise());
+        }
+    }
+}
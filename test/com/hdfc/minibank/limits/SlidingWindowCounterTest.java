@@ -0,0 +1,66 @@
+package com.hdfc.minibank.limits;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SlidingWindowCounterTest {
+
+    // 10 s window of 1 s buckets
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(10_000, 10);
+
+    @Test
+    void eventIsCountedUntilItsBucketLeavesTheWindow() {
+        counter.add(999, 100); // last millisecond of bucket 0
+        counter.add(1_000, 50); // first of bucket 1
+
+        assertEquals(2, counter.count(9_999));
+        assertEquals(150, counter.sum(9_999));
+        assertEquals(1, counter.count(10_000));
+        assertEquals(50, counter.sum(10_000));
+        assertEquals(1, counter.count(10_999));
+        assertEquals(0, counter.count(11_000));
+        assertEquals(0, counter.sum(11_000));
+    }
+
+    @Test
+    void jumpPastTheWholeWindowForgetsEverything() {
+        for (long t = 0; t < 10_000; t += 250) counter.add(t, 1);
+        assertEquals(40, counter.count(9_999));
+        assertEquals(0, counter.count(1_000_000));
+        counter.add(1_000_000, 7);
+        assertEquals(1, counter.count(1_000_000));
+        assertEquals(7, counter.sum(1_000_000));
+    }
+
+    @Test
+    void removeTakesBackAnEventStillInTheWindow() {
+        counter.add(1_500, 100);
+        counter.add(2_500, 200);
+        counter.remove(1_500, 100);
+        assertEquals(1, counter.count(2_500));
+        assertEquals(200, counter.sum(2_500));
+
+        counter.remove(2_500, 200); // the newest bucket
+        assertEquals(0, counter.count(2_500));
+        assertEquals(0, counter.sum(2_500));
+    }
+
+    @Test
+    void removeOfAnEventThatLeftTheWindowChangesNothing() {
+        counter.add(500, 100);
+        counter.add(10_500, 300);
+        counter.remove(500, 100); // bucket 0 was dropped when bucket 10 began
+        assertEquals(1, counter.count(10_500));
+        assertEquals(300, counter.sum(10_500));
+        counter.remove(99_000, 300); // not yet reached either
+        assertEquals(1, counter.count(10_500));
+    }
+
+    @Test
+    void windowMustHoldItsBuckets() {
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(10_000, 0));
+        assertThrows(IllegalArgumentException.class, () -> new SlidingWindowCounter(5, 10));
+    }
+}
@@ -0,0 +1,104 @@
+package com.hdfc.minibank.limits;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.exceptions.VelocityLimitExceededException;
+import com.hdfc.minibank.limits.VelocityPolicy.Flow;
+import com.hdfc.minibank.limits.VelocityPolicy.Rule;
+import com.hdfc.minibank.limits.VelocityPolicy.Scope;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VelocityLimiterTest {
+
+    private static final long MINUTE = 60_000;
+
+    @AfterEach
+    void clearPolicy() {
+        System.clearProperty("minibank.limits");
+    }
+
+    @Test
+    void countLimitHoldsUntilTheOldestMovementLeavesTheWindow() throws VelocityLimitExceededException {
+        // 5 s buckets: a movement at 0 is forgotten once the bucket starting at 60 s begins
+        VelocityLimiter limiter = limiter(new Rule(Scope.ACCOUNT, Flow.WITHDRAWAL, "minute", MINUTE, 12, 3, null));
+        for (int i = 0; i < 3; i++) limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 100, 0);
+
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 100, 0));
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 100, MINUTE - 1));
+        limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 100, MINUTE);
+        // other accounts and flows have windows of their own
+        limiter.acquire("ACC2", "CUST1", Flow.WITHDRAWAL, 100, 0);
+        limiter.acquire("ACC1", "CUST1", Flow.TRANSFER, 100, 0);
+    }
+
+    @Test
+    void amountLimitAllowsExactlyTheMaximum() throws VelocityLimitExceededException {
+        VelocityLimiter limiter = limiter(new Rule(Scope.ACCOUNT, Flow.TRANSFER, "minute", MINUTE, 12, 0, Money.ofPaise(1_000)));
+        limiter.acquire("ACC1", "CUST1", Flow.TRANSFER, 600, 0);
+
+        VelocityLimitExceededException e = assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.acquire("ACC1", "CUST1", Flow.TRANSFER, 401, 1));
+        assertEquals("Velocity limit exceeded: at most 10.00 transferred out per minute for account ACC1", e.getMessage());
+        limiter.acquire("ACC1", "CUST1", Flow.TRANSFER, 400, 1);
+    }
+
+    @Test
+    void customerLimitCoversAllOfItsAccounts() throws VelocityLimitExceededException {
+        VelocityLimiter limiter = limiter(new Rule(Scope.CUSTOMER, Flow.WITHDRAWAL, "minute", MINUTE, 12, 2, null));
+        limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 100, 0);
+        limiter.acquire("ACC2", "CUST1", Flow.WITHDRAWAL, 100, 0);
+
+        VelocityLimitExceededException e = assertThrows(VelocityLimitExceededException.class,
+                () -> limiter.acquire("ACC3", "CUST1", Flow.WITHDRAWAL, 100, 0));
+        assertTrue(e.getMessage().endsWith("for customer CUST1"), e.getMessage());
+        limiter.acquire("ACC4", "CUST2", Flow.WITHDRAWAL, 100, 0);
+    }
+
+    @Test
+    void refusedMovementIsNotCounted() throws VelocityLimitExceededException {
+        // the customer rule refuses after the account rule passed; neither may keep the count
+        VelocityLimiter limiter = limiter(
+                new Rule(Scope.ACCOUNT, Flow.WITHDRAWAL, "minute", MINUTE, 12, 2, null),
+                new Rule(Scope.CUSTOMER, Flow.WITHDRAWAL, "minute", MINUTE, 12, 0, Money.ofPaise(1_000)));
+        limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 900, 0);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 200, 0));
+        limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 100, 0);
+    }
+
+    @Test
+    void releaseGivesBackTheCountAndTheAmount() throws VelocityLimitExceededException {
+        VelocityLimiter limiter = limiter(new Rule(Scope.ACCOUNT, Flow.WITHDRAWAL, "minute", MINUTE, 12, 2, Money.ofPaise(1_000)),
+                new Rule(Scope.CUSTOMER, Flow.WITHDRAWAL, "minute", MINUTE, 12, 2, null));
+        limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 500, 0);
+        long at = limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 500, 10_000);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 1, 20_000));
+
+        limiter.release("ACC1", "CUST1", Flow.WITHDRAWAL, 500, at);
+        limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 500, 20_000);
+        assertThrows(VelocityLimitExceededException.class, () -> limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, 1, 20_000));
+    }
+
+    @Test
+    void limitsAreOffUnlessConfigured() throws VelocityLimitExceededException {
+        assertTrue(VelocityPolicy.fromSystemProperties().getRules().isEmpty());
+        System.setProperty("minibank.limits", "off");
+        VelocityLimiter limiter = new VelocityLimiter(VelocityPolicy.fromSystemProperties());
+        for (int i = 0; i < 10_000; i++) limiter.acquire("ACC1", "CUST1", Flow.WITHDRAWAL, Long.MAX_VALUE / 20_000, 0);
+
+        System.setProperty("minibank.limits", "standard");
+        assertFalse(VelocityPolicy.fromSystemProperties().getRules().isEmpty());
+        System.setProperty("minibank.limits", "strict");
+        assertThrows(IllegalArgumentException.class, VelocityPolicy::fromSystemProperties);
+    }
+
+    private static VelocityLimiter limiter(Rule... rules) {
+        return new VelocityLimiter(new VelocityPolicy(List.of(rules)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.hdfc.minibank.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesAreReportedWithinTheBucketPrecision() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (long v = 1; v <= 10_000; v++) h.record(v * 1_000);
+        LatencyHistogram.Snapshot s = h.snapshot();
+
+        assertEquals(10_000, s.getCount());
+        assertEquals(10_000_000, s.getMax());
+        long p50 = s.percentile(50);
+        assertTrue(p50 >= 5_000_000 && p50 <= 5_000_000 * 1.04, "p50 " + p50);
+        assertEquals(10_000_000, s.percentile(100));
+    }
+
+    @Test
+    void recordsOfManyThreadsAreMergedOnSnapshot() throws InterruptedException {
+        LatencyHistogram h = new LatencyHistogram();
+        int threads = 8;
+        int perThread = 50_000;
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long top = (t + 1) * 1_000L;
+            workers.add(new Thread(() -> {
+                for (int i = 0; i < perThread; i++) h.record(i % 2 == 0 ? 10 : top);
+            }));
+        }
+        for (Thread w : workers) w.start();
+        for (Thread w : workers) w.join();
+        LatencyHistogram.Snapshot s = h.snapshot();
+
+        assertEquals((long) threads * perThread, s.getCount());
+        assertEquals(threads * 1_000L, s.getMax());
+        assertEquals(10, s.percentile(50));
+    }
+}
@@ -0,0 +1,127 @@
+package com.hdfc.minibank.repository;
+
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionRepositoryTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 9, 0);
+    private static final String ACCOUNT = "ACC1000";
+
+    private final TransactionRepository repo = new TransactionRepository();
+
+    @Test
+    void pagesCoverTheRangeInOrder() {
+        for (int i = 0; i < 100; i++) add(i, i);
+
+        // [10 min, 60 min), 15 per page
+        List<Long> ids = page(START.plusMinutes(10), START.plusMinutes(60), 15);
+        List<Long> expected = new ArrayList<>();
+        for (long id = 10; id < 60; id++) expected.add(id);
+        assertEquals(expected, ids);
+    }
+
+    @Test
+    void emptyRangeHasOneEmptyLastPage() {
+        for (int i = 0; i < 10; i++) add(i, i);
+
+        HistoryPage page = repo.findByAccount(ACCOUNT, START.plusDays(1), START.plusDays(2), null, 5);
+        assertTrue(page.getItems().isEmpty());
+        assertFalse(page.hasMore());
+        assertNull(page.getNextCursor());
+        assertFalse(repo.findByAccount("ACC9999", null, null, null, 5).hasMore());
+        assertThrows(IllegalArgumentException.class, () -> repo.findByAccount(ACCOUNT, null, null, "12", 5));
+    }
+
+    @Test
+    void lateAppendsDoNotRepeatOrSkipRows() {
+        for (int i = 0; i < 20; i++) add(100 + i, 2 * i); // even minutes
+        HistoryPage first = repo.findByAccount(ACCOUNT, null, null, null, 10);
+        assertEquals(100, first.getItems().get(0).getId());
+        assertEquals(109, first.getItems().get(9).getId());
+
+        // both shift the rows of the second page by one index
+        add(1, 1);   // before the cursor: not seen by this walk
+        add(2, 25);  // after it: seen in order
+        List<Long> rest = new ArrayList<>();
+        for (String cursor = first.getNextCursor(); cursor != null; ) {
+            HistoryPage page = repo.findByAccount(ACCOUNT, null, null, cursor, 10);
+            page.getItems().forEach(t -> rest.add(t.getId()));
+            cursor = page.getNextCursor();
+        }
+        assertEquals(List.of(110L, 111L, 112L, 2L, 113L, 114L, 115L, 116L, 117L, 118L, 119L), rest);
+    }
+
+    @Test
+    void rowsOfTheSameMillisecondArePagedByID() {
+        for (long id = 10; id > 0; id--) add(id, 0);
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L, 9L, 10L), page(null, null, 3));
+    }
+
+    @Test
+    void concurrentAppendsNeverRepeatOrSkipExistingRows() throws InterruptedException {
+        int existing = 5_000;
+        for (int i = 0; i < existing; i++) add(i, 2 * i);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread writer = new Thread(() -> {
+            // odd minutes land between existing rows and shift everything after them
+            for (long id = existing; !done.get() && id < 10 * existing; id++) {
+                add(id, 2 * (id % existing) + 1);
+            }
+        });
+        writer.start();
+        try {
+            for (int walk = 0; walk < 20; walk++) {
+                Set<Long> seen = new HashSet<>();
+                long previous = Long.MIN_VALUE;
+                for (String cursor = null; ; ) {
+                    HistoryPage page = repo.findByAccount(ACCOUNT, null, null, cursor, 37);
+                    for (Transaction t : page.getItems()) {
+                        assertTrue(seen.add(t.getId()), "repeated " + t.getId());
+                        long minute = Duration.between(START, t.getTimestamp()).toMinutes();
+                        assertTrue(minute >= previous, "out of order at " + t.getId());
+                        previous = minute;
+                    }
+                    if (!page.hasMore()) break;
+                    cursor = page.getNextCursor();
+                }
+                for (long id = 0; id < existing; id++) assertTrue(seen.contains(id), "skipped " + id);
+            }
+        } finally {
+            done.set(true);
+            writer.join();
+        }
+    }
+
+    private List<Long> page(LocalDateTime from, LocalDateTime to, int size) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            HistoryPage page = repo.findByAccount(ACCOUNT, from, to, cursor, size);
+            assertTrue(page.getItems().size() <= size);
+            page.getItems().forEach(t -> ids.add(t.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+
+    private void add(long id, long minute) {
+        repo.add(new Transaction(id, ACCOUNT, TransactionType.DEPOSIT, Money.ofPaise(100), START.plusMinutes(minute), "Test"));
+    }
+}
@@ -0,0 +1,90 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.limits.VelocityPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BankServiceTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void customerTheJournalRefusesIsNotRegistered() {
+        try (BankService bank = new BankService(dir, VelocityPolicy.none())) {
+            Customer tooLong = customer("CUST1000", "x".repeat(Short.MAX_VALUE + 1));
+            assertThrows(IllegalArgumentException.class, () -> bank.registerCustomer(tooLong));
+            assertFalse(bank.getCustomers().exists("CUST1000"));
+
+            bank.registerCustomer(customer("CUST1000", "Test"));
+        }
+        try (BankService bank = new BankService(dir, VelocityPolicy.none())) {
+            assertEquals("Test", bank.getCustomers().findById("CUST1000").getName());
+        }
+    }
+
+    @Test
+    void movementsTheJournalRefusesLeaveBalancesAndHistoryUnchanged() throws Exception {
+        String from;
+        String to;
+        BankService bank = new BankService(dir, VelocityPolicy.standard());
+        try {
+            bank.registerCustomer(customer("CUST1000", "Test"));
+            Account a = bank.openAccount("CUST1000", AccountType.SAVINGS, Money.ofRupees(10_000));
+            Account b = bank.openAccount("CUST1000", AccountType.CURRENT, Money.ofRupees(5_000));
+            from = a.getAccountNo();
+            to = b.getAccountNo();
+        } finally {
+            bank.close();
+        }
+
+        Account a = bank.findAccount(from);
+        Account b = bank.findAccount(to);
+        assertThrows(IllegalStateException.class, () -> bank.deposit(a, Money.ofRupees(100)));
+        // more withdrawals than the per-minute limit, so a count kept by a refused one would show
+        for (int i = 0; i < 6; i++) {
+            assertThrows(IllegalStateException.class, () -> bank.withdraw(a, Money.ofRupees(100)));
+        }
+        assertThrows(IllegalStateException.class, () -> bank.transfer(a, b, Money.ofRupees(100)));
+        assertEquals(Money.ofRupees(10_000).toPaise(), a.getBalance().toPaise());
+        assertEquals(Money.ofRupees(5_000).toPaise(), b.getBalance().toPaise());
+        assertEquals(1, bank.getTransactionHistory(from).size());
+        assertEquals(1, bank.getTransactionHistory(to).size());
+
+        try (BankService reopened = new BankService(dir, VelocityPolicy.none())) {
+            assertEquals(Money.ofRupees(10_000).toPaise(), reopened.findAccount(from).getBalance().toPaise());
+            assertEquals(1, reopened.getTransactionHistory(from).size());
+        }
+    }
+
+    @Test
+    void transferThatWouldOverflowTheDestinationLeavesTheSourceUnchanged() {
+        try (BankService bank = new BankService(VelocityPolicy.standard())) {
+            bank.registerCustomer(customer("CUST1000", "Test"));
+            Account a = bank.openAccount("CUST1000", AccountType.SAVINGS, Money.ofRupees(10_000));
+            Account b = bank.openAccount("CUST1000", AccountType.CURRENT, Money.ofPaise(Long.MAX_VALUE - 100));
+            // more transfers than the per-minute limit, so a count kept by a refused one would show
+            for (int i = 0; i < 21; i++) {
+                assertThrows(ArithmeticException.class, () -> bank.transfer(a, b, Money.ofRupees(100)));
+            }
+            assertEquals(Money.ofRupees(10_000).toPaise(), a.getBalancePaise());
+            assertEquals(Long.MAX_VALUE - 100, b.getBalancePaise());
+            assertEquals(1, bank.getTransactionHistory(a.getAccountNo()).size());
+        }
+    }
+
+    private static Customer customer(String id, String name) {
+        return new Customer(id, name, "test@example.com", "9876543210", LocalDate.of(1990, 1, 1));
+    }
+}
@@ -0,0 +1,72 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.exceptions.InsufficientBalanceException;
+import com.hdfc.minibank.limits.VelocityPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+
+class BatchTransferEngineTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void instructionsAreAcceptedInOrderWhileTheBalanceCoversThem() throws Exception {
+        try (BankService bank = new BankService()) {
+            Account a = open(bank, AccountType.SAVINGS, 3_000);
+            Account b = open(bank, AccountType.CURRENT, 0);
+            BatchTransferResult result = bank.transferBatch(List.of(
+                    new TransferInstruction(a.getAccountNo(), b.getAccountNo(), Money.ofRupees(1_500)),
+                    new TransferInstruction(a.getAccountNo(), b.getAccountNo(), Money.ofRupees(1_000)),
+                    new TransferInstruction(a.getAccountNo(), b.getAccountNo(), Money.ofRupees(500))));
+
+            assertEquals(2, result.getSucceededCount());
+            assertInstanceOf(InsufficientBalanceException.class, result.getOutcomes().get(1).getFailure());
+            assertEquals(Money.ofRupees(1_000).toPaise(), a.getBalancePaise());
+            assertEquals(Money.ofRupees(2_000).toPaise(), b.getBalancePaise());
+            assertEquals(3, bank.getTransactionHistory(b.getAccountNo()).size());
+        }
+    }
+
+    @Test
+    void instructionsTheJournalRefusesFailAndGiveTheMoneyBack() throws Exception {
+        BankService bank = new BankService(dir, VelocityPolicy.none());
+        Account a;
+        Account b;
+        try {
+            a = open(bank, AccountType.SAVINGS, 10_000);
+            b = open(bank, AccountType.CURRENT, 0);
+        } finally {
+            bank.close();
+        }
+
+        BatchTransferResult result = bank.transferBatch(List.of(
+                new TransferInstruction(a.getAccountNo(), b.getAccountNo(), Money.ofRupees(100)),
+                new TransferInstruction(b.getAccountNo(), a.getAccountNo(), Money.ofRupees(1))));
+
+        assertEquals(0, result.getSucceededCount());
+        assertInstanceOf(IllegalStateException.class, result.getOutcomes().get(0).getFailure());
+        assertInstanceOf(InsufficientBalanceException.class, result.getOutcomes().get(1).getFailure());
+        assertEquals(Money.ofRupees(10_000).toPaise(), a.getBalancePaise());
+        assertEquals(0, b.getBalancePaise());
+        assertEquals(1, bank.getTransactionHistory(a.getAccountNo()).size());
+    }
+
+    private static Account open(BankService bank, AccountType type, long rupees) {
+        if (!bank.getCustomers().exists("CUST1000")) {
+            bank.registerCustomer(new Customer("CUST1000", "Test", "test@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+        }
+        return bank.openAccount("CUST1000", type, Money.ofRupees(rupees));
+    }
+}
@@ -0,0 +1,142 @@
+package com.hdfc.minibank.service;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.Transaction;
+import com.hdfc.minibank.domain.accounts.Account;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.domain.enums.TransactionType;
+import com.hdfc.minibank.limits.VelocityPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IngestionQueueTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void ringKeepsOrderAcrossWraparound() {
+        IngestionQueue.Ring ring = new IngestionQueue.Ring(4);
+        assertTrue(ring.isEmpty());
+        int next = 0;
+        int expected = 0;
+        // many laps, so head and tail pass the end of the slots again and again
+        for (int lap = 0; lap < 50; lap++) {
+            while (ring.offer(next)) next++;
+            assertEquals(4, next - expected);
+            assertFalse(ring.isEmpty());
+            // free fewer slots than were filled, so the next lap starts mid-array
+            for (int i = 0; i < 3; i++) assertEquals(expected++, (int) ring.<Integer>poll());
+        }
+        Integer e;
+        while ((e = ring.poll()) != null) assertEquals(expected++, (int) e);
+        assertEquals(next, expected);
+        assertTrue(ring.isEmpty());
+        // sizes round up to a power of two
+        assertTrue(fill(new IngestionQueue.Ring(5), 8));
+    }
+
+    @Test
+    void producersWaitForAFullRingAndEveryRequestIsApplied() throws Exception {
+        try (BankService bank = new BankService(VelocityPolicy.none())) {
+            bank.registerCustomer(customer());
+            Account acc = bank.openAccount("CUST1000", AccountType.SAVINGS, Money.ofRupees(10_000));
+            List<CompletableFuture<Transaction>> futures = new ArrayList<>();
+            try (IngestionQueue queue = new IngestionQueue(bank, 1, 4)) {
+                CompletableFuture<CompletableFuture<Transaction>> late = new CompletableFuture<>();
+                Thread producer = new Thread(() -> late.complete(queue.submit(acc, TransactionType.DEPOSIT, Money.ofRupees(1))));
+                synchronized (acc) {
+                    // the writer takes the first request and blocks settling it
+                    futures.add(queue.submit(acc, TransactionType.DEPOSIT, Money.ofRupees(1)));
+                    await(IngestionQueueTest::writerBlocked);
+                    for (int i = 0; i < 4; i++) {
+                        futures.add(queue.submit(acc, TransactionType.DEPOSIT, Money.ofRupees(1)));
+                    }
+                    // the ring is full, so this one has to wait for the writer
+                    producer.start();
+                    await(() -> backpressureWaits(bank) > 0);
+                    assertFalse(late.isDone());
+                    assertEquals(Money.ofRupees(10_000).toPaise(), acc.getBalancePaise());
+                }
+                producer.join();
+                futures.add(late.join());
+                for (CompletableFuture<Transaction> f : futures) f.join();
+            }
+            assertEquals(6, futures.size());
+            assertEquals(Money.ofRupees(10_006).toPaise(), acc.getBalancePaise());
+            assertEquals(7, bank.getTransactionHistory(acc.getAccountNo()).size());
+        }
+    }
+
+    @Test
+    void withdrawalsTheJournalRefusesArePutBack() {
+        BankService bank = new BankService(dir, VelocityPolicy.standard());
+        Account acc;
+        try {
+            bank.registerCustomer(customer());
+            acc = bank.openAccount("CUST1000", AccountType.SAVINGS, Money.ofRupees(10_000));
+        } finally {
+            bank.close();
+        }
+
+        try (IngestionQueue queue = new IngestionQueue(bank, 1, 16)) {
+            // more withdrawals than the per-minute limit, so a count kept by a refused one would show
+            for (int i = 0; i < 6; i++) {
+                CompletableFuture<Transaction> f = queue.submit(acc, TransactionType.WITHDRAWAL, Money.ofRupees(100));
+                CompletionException e = assertThrows(CompletionException.class, f::join);
+                assertInstanceOf(IllegalStateException.class, e.getCause());
+                assertEquals(Money.ofRupees(10_000).toPaise(), acc.getBalancePaise());
+            }
+            CompletableFuture<Transaction> deposit = queue.submit(acc, TransactionType.DEPOSIT, Money.ofRupees(100));
+            assertInstanceOf(IllegalStateException.class, assertThrows(CompletionException.class, deposit::join).getCause());
+        }
+        assertEquals(Money.ofRupees(10_000).toPaise(), acc.getBalancePaise());
+        assertEquals(1, bank.getTransactionHistory(acc.getAccountNo()).size());
+    }
+
+    // Whether the ring takes exactly n elements.
+    private static boolean fill(IngestionQueue.Ring ring, int n) {
+        for (int i = 0; i < n; i++) {
+            if (!ring.offer(i)) return false;
+        }
+        return !ring.offer(n);
+    }
+
+    private static boolean writerBlocked() {
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("ingest-") && t.getState() == Thread.State.BLOCKED) return true;
+        }
+        return false;
+    }
+
+    private static long backpressureWaits(BankService bank) {
+        return bank.getMetrics().getCounters().get("ingestion.backpressureWaits");
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "timed out");
+            Thread.sleep(1);
+        }
+    }
+
+    private static Customer customer() {
+        return new Customer("CUST1000", "Test", "test@example.com", "9876543210", LocalDate.of(1990, 1, 1));
+    }
+}
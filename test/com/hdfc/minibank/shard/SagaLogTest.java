@@ -0,0 +1,162 @@
+package com.hdfc.minibank.shard;
+
+import com.hdfc.minibank.domain.Customer;
+import com.hdfc.minibank.domain.Money;
+import com.hdfc.minibank.domain.enums.AccountType;
+import com.hdfc.minibank.http.BankHttpServer;
+import com.hdfc.minibank.http.TransferStepServer;
+import com.hdfc.minibank.ids.SnowflakeIdGenerator;
+import com.hdfc.minibank.service.BankService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SagaLogTest {
+
+    private static final String SECRET = "router-and-shards-secret";
+    private static final String RECEIPT_SECRET = "shards-only-receipt-secret";
+    private static final Money OPENING_BALANCE = Money.ofRupees(10_000);
+
+    @TempDir
+    Path dir;
+
+    private final SnowflakeIdGenerator stepIds = new SnowflakeIdGenerator(ShardMap.ROUTER_NODE_ID);
+    private final List<AutoCloseable> resources = new ArrayList<>();
+
+    @AfterEach
+    void close() throws Exception {
+        for (int i = resources.size() - 1; i >= 0; i--) resources.get(i).close();
+    }
+
+    @Test
+    void reopenedLogKeepsTheUnfinishedTransfers() throws IOException {
+        Path file = dir.resolve("sagas.log");
+        ShardRouter.PendingTransfer debited = transfer("ACC1000", "ACC1001");
+        ShardRouter.PendingTransfer begun = transfer("ACC1000", "ACC1002");
+        ShardRouter.PendingTransfer ended = transfer("ACC1001", "ACC1002");
+        try (SagaLog log = SagaLog.open(file)) {
+            log.begin(debited);
+            debited.receipt = "abc123";
+            log.debited(debited);
+            log.begin(begun);
+            log.begin(ended);
+            log.end(ended);
+        }
+        // the crash cut the next line short
+        Files.write(file, ("debited " + begun.debitId + " de").getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (SagaLog log = SagaLog.open(file)) {
+            List<ShardRouter.PendingTransfer> open = log.openTransfers();
+            assertEquals(2, open.size());
+            assertEquals(debited.debitId, open.get(0).debitId);
+            assertTrue(open.get(0).debited);
+            assertEquals("abc123", open.get(0).receipt);
+            assertEquals(debited.refundId, open.get(0).refundId);
+            assertEquals(debited.amount.toPaise(), open.get(0).amount.toPaise());
+            assertEquals(begun.debitId, open.get(1).debitId);
+            assertFalse(open.get(1).debited);
+            assertNull(open.get(1).receipt);
+            log.end(open.get(0));
+            log.end(open.get(1));
+        }
+        try (SagaLog log = SagaLog.open(file)) {
+            assertTrue(log.openTransfers().isEmpty());
+        }
+    }
+
+    @Test
+    void routerFinishesATransferItWasDebitingWhenItCrashed() throws Exception {
+        List<BankService> banks = new ArrayList<>();
+        List<URI> uris = new ArrayList<>();
+        List<URI> stepUris = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            System.setProperty("minibank.shards", "2");
+            System.setProperty("minibank.shard", Integer.toString(i));
+            System.setProperty("minibank.nodeId", Integer.toString(i));
+            try {
+                banks.add(open(new BankService()));
+            } finally {
+                System.clearProperty("minibank.shards");
+                System.clearProperty("minibank.shard");
+                System.clearProperty("minibank.nodeId");
+            }
+            BankHttpServer http = open(new BankHttpServer(banks.get(i), 0));
+            TransferStepServer steps = open(new TransferStepServer(banks.get(i), 0, SECRET, RECEIPT_SECRET));
+            http.start();
+            steps.start();
+            uris.add(URI.create("http://127.0.0.1:" + http.getPort()));
+            stepUris.add(URI.create("http://127.0.0.1:" + steps.getPort()));
+        }
+        Path file = dir.resolve("sagas.log");
+        String from;
+        String to;
+        try (ShardRouter router = new ShardRouter(uris, stepUris, SECRET, file)) {
+            from = openAccountOn(router, 0);
+            to = openAccountOn(router, 1);
+        }
+
+        // the router wrote the saga and sent the debit, then crashed before the credit
+        ShardRouter.PendingTransfer t = transfer(from, to);
+        try (SagaLog log = SagaLog.open(file)) {
+            log.begin(t);
+        }
+        debit(stepUris.get(0), t);
+
+        try (ShardRouter router = new ShardRouter(uris, stepUris, SECRET, file)) {
+            assertEquals(1, router.getPendingTransfers());
+            assertEquals(0, router.retryPending());
+            assertEquals(OPENING_BALANCE.toPaise() - t.amount.toPaise(), router.getBalance(from).toPaise());
+            assertEquals(OPENING_BALANCE.toPaise() + t.amount.toPaise(), router.getBalance(to).toPaise());
+        }
+        try (SagaLog log = SagaLog.open(file)) {
+            assertTrue(log.openTransfers().isEmpty());
+        }
+    }
+
+    private ShardRouter.PendingTransfer transfer(String from, String to) {
+        return new ShardRouter.PendingTransfer(stepIds.nextId(), stepIds.nextId(), stepIds.nextId(), from, to, Money.ofRupees(250));
+    }
+
+    // Registers a customer whose accounts land on the shard and opens one.
+    private static String openAccountOn(ShardRouter router, int shard) {
+        for (int n = 1000; ; n++) {
+            String id = "CUST" + n;
+            if (router.shardOfCustomer(id) != shard) continue;
+            router.registerCustomer(new Customer(id, "Test", "test@example.com", "9876543210", LocalDate.of(1990, 1, 1)));
+            return router.openAccount(id, AccountType.CURRENT, OPENING_BALANCE);
+        }
+    }
+
+    private static void debit(URI stepEndpoint, ShardRouter.PendingTransfer t) throws Exception {
+        String form = "debit=" + t.debitId + "&credit=" + t.creditId + "&refund=" + t.refundId
+                + "&from=" + t.from + "&to=" + t.to + "&amount=" + t.amount;
+        HttpResponse<String> res = HttpClient.newHttpClient().send(HttpRequest.newBuilder(stepEndpoint.resolve("/transfers/debit"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .header("Authorization", "Bearer " + SECRET)
+                .POST(HttpRequest.BodyPublishers.ofString(form)).build(), HttpResponse.BodyHandlers.ofString());
+        assertEquals(200, res.statusCode(), res.body());
+    }
+
+    private <T extends AutoCloseable> T open(T resource) {
+        resources.add(resource);
+        return resource;
+    }
+}